@@ -0,0 +1,56 @@
+package com.itinera.backend.algorithm;
+
+import com.itinera.backend.benchmark.SyntheticPlaces;
+import com.itinera.backend.model.Place;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClusteringBenchmark {
+
+    @Param({ "5", "10", "20", "35", "50" })
+    int places;
+
+    @Param({ "2", "3", "5" })
+    int days;
+
+    private double[] lat;
+    private double[] lon;
+    private double[] explore;
+    private int[] initial;
+
+    private final KMeansClusterer kMeans = new KMeansClusterer(100);
+    private final BalancedClusterer balanced = new BalancedClusterer(20, 0.15);
+
+    @Setup
+    public void setUp() {
+        List<Place> input = SyntheticPlaces.places(places, 42);
+        lat = new double[places];
+        lon = new double[places];
+        explore = new double[places];
+        for (int i = 0; i < places; i++) {
+            lat[i] = input.get(i).getLatitude();
+            lon[i] = input.get(i).getLongitude();
+            explore[i] = input.get(i).getExploreTime();
+        }
+        initial = kMeans.cluster(lat, lon, days, 42).assignment;
+    }
+
+    @Benchmark
+    public int[] kMeans() {
+        return kMeans.cluster(lat, lon, days, 42).assignment;
+    }
+
+    // Capacity balancing on top of a K-Means start, as clusterPlaces runs it by default
+    @Benchmark
+    public int[] balanced() {
+        return balanced.cluster(lat, lon, explore, days, 10, 3.12, initial).assignment;
+    }
+}
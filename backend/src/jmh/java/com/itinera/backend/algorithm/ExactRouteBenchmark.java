@@ -0,0 +1,41 @@
+package com.itinera.backend.algorithm;
+
+import com.itinera.backend.benchmark.SyntheticPlaces;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Exact solvers over one day (hotel + places); Held-Karp is O(2^n n^2), so sizes stop at 16
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExactRouteBenchmark {
+
+    @Param({ "5", "8", "10", "12", "13", "14", "16" })
+    int places;
+
+    private double[] cost;
+    private int size;
+
+    private final RouteSolver heldKarp = new HeldKarpSolver();
+    private final RouteSolver branchAndBound = new BranchAndBoundSolver(new LocalSearchSolver(), 2_000_000);
+
+    @Setup
+    public void setUp() {
+        size = places + 1;
+        cost = SyntheticPlaces.costMatrix(size, 7);
+    }
+
+    @Benchmark
+    public Route heldKarp() {
+        return heldKarp.solve(cost, size);
+    }
+
+    @Benchmark
+    public Route branchAndBound() {
+        return branchAndBound.solve(cost, size);
+    }
+}
@@ -0,0 +1,58 @@
+package com.itinera.backend.algorithm;
+
+import com.itinera.backend.benchmark.SyntheticPlaces;
+import com.itinera.backend.model.Place;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Solvers that scale past the exact limit: 2-opt/Or-opt and the time-window search
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeuristicRouteBenchmark {
+
+    @Param({ "5", "10", "20", "35", "50" })
+    int places;
+
+    private double[] cost;
+    private int size;
+    private TimeWindowSolver timeWindowSolver;
+
+    private final RouteSolver localSearch = new LocalSearchSolver();
+
+    @Setup
+    public void setUp() {
+        size = places + 1;
+        cost = SyntheticPlaces.costMatrix(size, 7);
+
+        List<Place> input = SyntheticPlaces.places(places, 7);
+        double[] travel = new double[size * size];
+        for (int i = 0; i < size * size; i++)
+            travel[i] = Double.isInfinite(cost[i]) ? 0 : cost[i] / 8 * 2.4; // km → minutes
+        int[] open = new int[size];
+        int[] close = new int[size];
+        int[] service = new int[size];
+        for (int i = 1; i < size; i++) {
+            open[i] = input.get(i - 1).getOpenTime();
+            close[i] = input.get(i - 1).getCloseTime();
+            service[i] = input.get(i - 1).getExploreTime();
+        }
+        TimeWindows windows = new TimeWindows(travel, size, open, close, service, 540);
+        timeWindowSolver = new TimeWindowSolver(windows, localSearch, 500_000);
+    }
+
+    @Benchmark
+    public Route localSearch() {
+        return localSearch.solve(cost, size);
+    }
+
+    @Benchmark
+    public Route timeWindows() {
+        return timeWindowSolver.solve(cost, size);
+    }
+}
@@ -0,0 +1,59 @@
+package com.itinera.backend.algorithm;
+
+import com.itinera.backend.benchmark.SyntheticPlaces;
+import com.itinera.backend.model.Place;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Catalog-sized inputs: point K-Means against K-Means over grid cells, and the hotel radius query
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialIndexBenchmark {
+
+    @Param({ "500", "2000", "5000" })
+    int places;
+
+    @Param({ "3", "7" })
+    int days;
+
+    private double[] lat;
+    private double[] lon;
+    private SpatialIndex index;
+
+    private final KMeansClusterer kMeans = new KMeansClusterer(100);
+
+    @Setup
+    public void setUp() {
+        List<Place> input = SyntheticPlaces.places(places, 42);
+        lat = new double[places];
+        lon = new double[places];
+        for (int i = 0; i < places; i++) {
+            lat[i] = input.get(i).getLatitude();
+            lon[i] = input.get(i).getLongitude();
+        }
+        index = new SpatialIndex(lat, lon);
+    }
+
+    @Benchmark
+    public int[] pointKMeans() {
+        return kMeans.cluster(lat, lon, days, 42).assignment;
+    }
+
+    // Index build included, as clusterPlaces pays it per call
+    @Benchmark
+    public int[] cellKMeans() {
+        SpatialIndex.Cells cells = new SpatialIndex(lat, lon).cells(0.25);
+        return kMeans.cluster(cells.lat, cells.lon, cells.weight, days, 42).assignment;
+    }
+
+    @Benchmark
+    public int[] hotelRadius() {
+        return index.within(SyntheticPlaces.HOTEL_LAT, SyntheticPlaces.HOTEL_LON, 5);
+    }
+}
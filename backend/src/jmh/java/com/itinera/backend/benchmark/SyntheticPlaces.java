@@ -0,0 +1,110 @@
+package com.itinera.backend.benchmark;
+
+import com.itinera.backend.model.Place;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Reproducible inputs for the benchmarks: places scattered over a ~30 km city box (central
+ * Delhi), with realistic opening hours and explore times, and OSRM-shaped responses for them.
+ */
+public final class SyntheticPlaces {
+
+    public static final double HOTEL_LAT = 28.6139;
+    public static final double HOTEL_LON = 77.2090;
+
+    private SyntheticPlaces() {
+    }
+
+    public static List<Place> places(int n, long seed) {
+        Random random = new Random(seed);
+        List<Place> places = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int open = 480 + random.nextInt(5) * 30; // 8:00 - 10:00
+            int close = 1020 + random.nextInt(9) * 30; // 17:00 - 21:00
+            places.add(new Place("Place " + i, "",
+                    HOTEL_LAT - 0.15 + random.nextDouble() * 0.3,
+                    HOTEL_LON - 0.15 + random.nextDouble() * 0.3,
+                    open, close, open + 60, close - 120,
+                    30 + random.nextInt(7) * 15, 1 + random.nextInt(5)));
+        }
+        return places;
+    }
+
+    // Hotel first, then the places, as the day planner lays out a matrix
+    public static List<Place> withHotel(List<Place> places) {
+        List<Place> all = new ArrayList<>(places.size() + 1);
+        all.add(new Place("Hotel", "", HOTEL_LAT, HOTEL_LON, 0, 0, 0, 0, 0, 0));
+        all.addAll(places);
+        return all;
+    }
+
+    /**
+     * Row-major solver cost matrix for {@code size} nodes: road-like costs from straight-line
+     * distance times a random detour, infinite diagonal.
+     */
+    public static double[] costMatrix(int size, long seed) {
+        List<Place> stops = withHotel(places(size - 1, seed));
+        Random random = new Random(seed ^ 0x5DEECE66DL);
+        double[] cost = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                cost[i * size + j] = i == j
+                        ? Double.POSITIVE_INFINITY
+                        : km(stops.get(i), stops.get(j)) * (1.2 + random.nextDouble() * 0.4) * 8;
+            }
+        }
+        return cost;
+    }
+
+    /** An OSRM /table response body for {@code size} coordinates, shaped like a recorded one. */
+    public static String osrmTable(int size, long seed) {
+        List<Place> stops = withHotel(places(size - 1, seed));
+        Random random = new Random(seed);
+        StringBuilder distances = new StringBuilder("[");
+        StringBuilder durations = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            distances.append(i == 0 ? "[" : ",[");
+            durations.append(i == 0 ? "[" : ",[");
+            for (int j = 0; j < size; j++) {
+                double meters = i == j ? 0 : km(stops.get(i), stops.get(j)) * 1000 * (1.2 + random.nextDouble() * 0.4);
+                if (j > 0) {
+                    distances.append(',');
+                    durations.append(',');
+                }
+                distances.append(String.format(Locale.ROOT, "%.1f", meters));
+                durations.append(String.format(Locale.ROOT, "%.1f", meters / 7.5));
+            }
+            distances.append(']');
+            durations.append(']');
+        }
+        distances.append(']');
+        durations.append(']');
+
+        StringBuilder waypoints = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            Place p = stops.get(i);
+            if (i > 0)
+                waypoints.append(',');
+            waypoints.append(String.format(Locale.ROOT,
+                    "{\"hint\":\"AAAAgP___38AAAAA\",\"distance\":12.3,\"name\":\"Janpath\",\"location\":[%.6f,%.6f]}",
+                    p.getLongitude(), p.getLatitude()));
+        }
+        waypoints.append(']');
+
+        return "{\"code\":\"Ok\",\"distances\":" + distances + ",\"durations\":" + durations
+                + ",\"sources\":" + waypoints + ",\"destinations\":" + waypoints + "}";
+    }
+
+    private static double km(Place a, Place b) {
+        double dLat = Math.toRadians(b.getLatitude() - a.getLatitude());
+        double dLon = Math.toRadians(b.getLongitude() - a.getLongitude());
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(a.getLatitude())) * Math.cos(Math.toRadians(b.getLatitude()))
+                        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371 * 2 * Math.atan2(Math.sqrt(h), Math.sqrt(1 - h));
+    }
+}
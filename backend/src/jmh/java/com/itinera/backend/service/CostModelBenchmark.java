@@ -0,0 +1,76 @@
+package com.itinera.backend.service;
+
+import com.itinera.backend.benchmark.SyntheticPlaces;
+import com.itinera.backend.model.Place;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Per-pair arithmetic behind every day: the solver cost function and straight-line distances
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CostModelBenchmark {
+
+    @Param({ "5", "10", "20", "35", "50" })
+    int places;
+
+    private List<Place> stops;
+    private double[] lat;
+    private double[] lon;
+    private MatrixResult matrix;
+
+    private final HaversineMatrixProvider haversineMatrix = new HaversineMatrixProvider(1.3, 25);
+
+    @Setup
+    public void setUp() throws Exception {
+        stops = SyntheticPlaces.withHotel(SyntheticPlaces.places(places, 11));
+        int size = stops.size();
+        lat = new double[size];
+        lon = new double[size];
+        for (int i = 0; i < size; i++) {
+            lat[i] = stops.get(i).getLatitude();
+            lon[i] = stops.get(i).getLongitude();
+        }
+        matrix = haversineMatrix.matrix(stops);
+    }
+
+    // Full cost matrix as buildCostMatrix fills it
+    @Benchmark
+    public double computeCost() {
+        int size = stops.size();
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 1; j < size; j++) {
+                if (i == j)
+                    continue;
+                Place p = stops.get(j);
+                sum += AlgorithmService.computeCost(matrix.distance(i, j), matrix.duration(i, j),
+                        (p.getCloseTime() - p.getOpenTime()) / 30.0,
+                        (p.getIdealEndTime() - p.getIdealStartTime()) / 30.0, p.getPriority());
+            }
+        }
+        return sum;
+    }
+
+    // All pairs with the scalar trig formula
+    @Benchmark
+    public double haversinePairs() {
+        int size = lat.length;
+        double sum = 0;
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                sum += AlgorithmService.haversine(lat[i], lon[i], lat[j], lon[j]);
+        return sum;
+    }
+
+    // All pairs through the batch unit-vector provider used when OSRM is unavailable
+    @Benchmark
+    public MatrixResult haversineMatrix() {
+        return haversineMatrix.matrix(stops);
+    }
+}
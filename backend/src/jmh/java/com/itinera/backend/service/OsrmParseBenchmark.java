@@ -0,0 +1,35 @@
+package com.itinera.backend.service;
+
+import com.itinera.backend.benchmark.SyntheticPlaces;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// JSON-to-matrix decoding of OSRM /table bodies, the per-request cost after the network
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OsrmParseBenchmark {
+
+    @Param({ "5", "10", "20", "35", "50", "100" })
+    int places;
+
+    private String body;
+    private int size;
+    private final OsrmHttpMatrixProvider provider = new OsrmHttpMatrixProvider(new SimpleMeterRegistry());
+
+    @Setup
+    public void setUp() {
+        size = places + 1;
+        body = SyntheticPlaces.osrmTable(size, 3);
+    }
+
+    @Benchmark
+    public MatrixResult parseTable() throws Exception {
+        return provider.parseTable(body, size, size);
+    }
+}
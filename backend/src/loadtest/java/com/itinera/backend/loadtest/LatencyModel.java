@@ -0,0 +1,56 @@
+package com.itinera.backend.loadtest;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Response time and failure rate of a stubbed upstream. Latencies are log-normal, fitted to a
+ * median and a p99, which is close to what real network services show: most calls near the
+ * median and a long right tail.
+ */
+final class LatencyModel {
+
+    private static final double Z99 = 2.3263478740408408;
+
+    private final double mu;
+    private final double sigma;
+    private final double errorRate;
+
+    LatencyModel(double medianMs, double p99Ms, double errorRate) {
+        if (medianMs < 0 || p99Ms < medianMs)
+            throw new IllegalArgumentException("Need 0 <= median <= p99, got " + medianMs + " / " + p99Ms);
+        this.mu = Math.log(Math.max(medianMs, 1e-3));
+        this.sigma = p99Ms == medianMs || medianMs == 0 ? 0 : Math.log(p99Ms / medianMs) / Z99;
+        this.errorRate = errorRate;
+    }
+
+    static LatencyModel of(Options options, String upstream, double medianMs, double p99Ms, double errorRate) {
+        return new LatencyModel(options.number(upstream + ".median-ms", medianMs),
+                options.number(upstream + ".p99-ms", p99Ms),
+                options.number(upstream + ".error-rate", errorRate));
+    }
+
+    long sampleMs() {
+        Random random = ThreadLocalRandom.current();
+        return Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+    }
+
+    boolean fails() {
+        return ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "median %.0f ms, p99 %.0f ms, %.1f%% errors",
+                Math.exp(mu), Math.exp(mu + sigma * Z99), errorRate * 100);
+    }
+}
@@ -0,0 +1,175 @@
+package com.itinera.backend.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator: requests start on a fixed schedule at the target rate whether or
+ * not earlier ones have finished, as independent users would send them. Latency is measured
+ * from each request's scheduled start, so a stalled server shows up in the percentiles instead
+ * of silently lowering the offered rate (coordinated omission). When more than
+ * {@code maxInFlight} requests are outstanding, new ones are counted as dropped rather than
+ * queued on the client.
+ */
+final class LoadDriver {
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final String baseUrl;
+    private final Workload workload;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    LoadDriver(String baseUrl, Workload workload, int maxInFlight) {
+        this.baseUrl = baseUrl;
+        this.workload = workload;
+        this.maxInFlight = maxInFlight;
+    }
+
+    // Latencies of one request kind, in microseconds
+    static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+        private int dropped;
+
+        synchronized void record(long micros, boolean ok) {
+            if (!ok) {
+                errors++;
+                return;
+            }
+            if (count == latencies.length)
+                latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = micros;
+        }
+
+        synchronized void drop() {
+            dropped++;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /** Offers {@code rps} for the warmup (not recorded), then for the measured window. */
+    Map<Workload.Kind, Recorder> run(double rps, int warmupSeconds, int seconds) throws InterruptedException {
+        if (warmupSeconds > 0) {
+            System.out.println("🔥 Warming up for " + warmupSeconds + " s");
+            offer(rps, warmupSeconds, new EnumMap<>(Workload.Kind.class));
+        }
+        System.out.println("🚀 Offering " + rps + " req/s for " + seconds + " s");
+        Map<Workload.Kind, Recorder> recorders = new EnumMap<>(Workload.Kind.class);
+        for (Workload.Kind kind : Workload.Kind.values())
+            recorders.put(kind, new Recorder());
+        offer(rps, seconds, recorders);
+        return recorders;
+    }
+
+    private void offer(double rps, int seconds, Map<Workload.Kind, Recorder> recorders) throws InterruptedException {
+        long interval = Math.round(TimeUnit.SECONDS.toNanos(1) / rps);
+        long start = System.nanoTime();
+        long total = Math.round(rps * seconds);
+        for (long i = 0; i < total; i++) {
+            long scheduled = start + i * interval;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0)
+                LockSupport.parkNanos(wait);
+
+            Workload.Kind kind = workload.nextKind();
+            Recorder recorder = recorders.get(kind);
+            if (inFlight.get() >= maxInFlight) {
+                if (recorder != null)
+                    recorder.drop();
+                continue;
+            }
+            send(kind, scheduled, recorder);
+        }
+        // Let the last requests of this window land before it is reported
+        while (inFlight.get() > 0)
+            Thread.sleep(10);
+    }
+
+    private void send(Workload.Kind kind, long scheduled, Recorder recorder) {
+        HttpRequest request;
+        try {
+            request = workload.request(kind, baseUrl);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        inFlight.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            inFlight.decrementAndGet();
+            if (recorder != null)
+                recorder.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled),
+                        error == null && Workload.succeeded(kind, response));
+        });
+    }
+
+    static void report(Map<Workload.Kind, Recorder> recorders, int seconds, PrintStream out, Path csv)
+            throws IOException {
+        List<String> rows = new ArrayList<>();
+        rows.add("endpoint,ok,errors,dropped,throughput_rps,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+        out.println();
+        out.printf(Locale.ROOT, "%-36s %8s %7s %8s %9s %9s %9s %9s %9s %9s%n", "endpoint", "ok", "errors",
+                "dropped", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        for (Map.Entry<Workload.Kind, Recorder> entry : recorders.entrySet()) {
+            Recorder recorder = entry.getValue();
+            long[] sorted = recorder.sorted();
+            if (sorted.length == 0 && recorder.errors == 0 && recorder.dropped == 0)
+                continue;
+            double[] values = new double[PERCENTILES.length + 1];
+            for (int p = 0; p < PERCENTILES.length; p++)
+                values[p] = percentile(sorted, PERCENTILES[p]);
+            values[PERCENTILES.length] = sorted.length == 0 ? Double.NaN : sorted[sorted.length - 1] / 1000.0;
+            double throughput = sorted.length / (double) seconds;
+
+            out.printf(Locale.ROOT, "%-36s %8d %7d %8d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n", entry.getKey().label,
+                    sorted.length, recorder.errors, recorder.dropped, throughput, values[0], values[1], values[2],
+                    values[3], values[4]);
+            rows.add(String.format(Locale.ROOT, "%s,%d,%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f", entry.getKey().label,
+                    sorted.length, recorder.errors, recorder.dropped, throughput, values[0], values[1], values[2],
+                    values[3], values[4]));
+        }
+
+        if (csv != null) {
+            Files.createDirectories(csv.toAbsolutePath().getParent());
+            Files.write(csv, rows);
+            out.println("\n📄 Results written to " + csv);
+        }
+    }
+
+    // Nearest-rank percentile, in milliseconds
+    static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return Double.NaN;
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1000.0;
+    }
+}
@@ -0,0 +1,93 @@
+package com.itinera.backend.loadtest;
+
+import com.itinera.backend.BackendApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * End-to-end load test on one machine, fully offline: starts the OSRM, OpenRouter and Redis
+ * stand-ins, boots the backend against them on a random port, replays the request mix at a fixed
+ * rate and prints latency percentiles and throughput per endpoint.
+ *
+ * Run with {@code mvn -Ploadtest compile exec:exec -Dloadtest.args="rps=50 duration=120"}.
+ * Settings (defaults in brackets):
+ * <ul>
+ * <li>rps [20], duration [60] and warmup [15] seconds, max-in-flight [1000]</li>
+ * <li>mix [plan:6,itinerary:3,stream:1,places:1], repeat [0.3]: share of requests for popular trips</li>
+ * <li>osrm.median-ms [60], osrm.p99-ms [400], osrm.error-rate [0.01]</li>
+ * <li>openrouter.median-ms [900], openrouter.p99-ms [4000], openrouter.error-rate [0.02]: time to
+ * first token; openrouter.chunk-ms [12] per streamed chunk</li>
+ * <li>app.&lt;property&gt;: passed to the backend, e.g. app.itinera.cluster.mode=kmeans</li>
+ * <li>target=http://host:port: drive an already running backend instead (the stubs still start and
+ * their addresses are printed so it can be pointed at them)</li>
+ * <li>out [target/loadtest-results.csv]</li>
+ * </ul>
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        LatencyModel osrmLatency = LatencyModel.of(options, "osrm", 60, 400, 0.01);
+        LatencyModel modelLatency = LatencyModel.of(options, "openrouter", 900, 4000, 0.02);
+
+        try (MiniRedis redis = new MiniRedis();
+                OsrmStub osrm = new OsrmStub(osrmLatency);
+                OpenRouterStub openRouter = new OpenRouterStub(modelLatency, options.number("openrouter.chunk-ms", 12))) {
+            System.out.println("🧪 Redis stand-in on 127.0.0.1:" + redis.port());
+            System.out.println("🧪 OSRM stub at " + osrm.baseUrl() + " (" + osrmLatency + ")");
+            System.out.println("🧪 OpenRouter stub at " + openRouter.url() + " (" + modelLatency + " to first token)");
+
+            String target = options.string("target", null);
+            ConfigurableApplicationContext backend = null;
+            if (target == null) {
+                backend = boot(options, redis, osrm, openRouter);
+                target = "http://127.0.0.1:" + ((WebServerApplicationContext) backend).getWebServer().getPort();
+            }
+
+            try {
+                Workload workload = new Workload(options.string("mix", "plan:6,itinerary:3,stream:1,places:1"),
+                        options.number("repeat", 0.3));
+                LoadDriver driver = new LoadDriver(target, workload, options.integer("max-in-flight", 1000));
+                int seconds = options.integer("duration", 60);
+                Map<Workload.Kind, LoadDriver.Recorder> results = driver.run(options.number("rps", 20),
+                        options.integer("warmup", 15), seconds);
+                LoadDriver.report(results, seconds, System.out,
+                        Path.of(options.string("out", "target/loadtest-results.csv")));
+            } finally {
+                if (backend != null)
+                    backend.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext boot(Options options, MiniRedis redis, OsrmStub osrm,
+            OpenRouterStub openRouter) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.data.redis.host", "127.0.0.1");
+        properties.put("spring.data.redis.port", redis.port());
+        properties.put("osrm.base-url", osrm.baseUrl());
+        properties.put("openrouter.api.url", openRouter.url());
+        properties.put("openrouter.api.key", "loadtest");
+        // The backend declares JPA but has no entities; there is no database to connect to here
+        properties.put("spring.autoconfigure.exclude",
+                "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration");
+        properties.put("logging.level.root", "WARN");
+        properties.putAll(options.under("app."));
+
+        // Devtools would restart main() without its arguments; this must be set before startup
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        System.out.println("⏳ Starting backend");
+        return new SpringApplicationBuilder(BackendApplication.class).properties(properties).run();
+    }
+}
@@ -0,0 +1,505 @@
+package com.itinera.backend.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * In-process Redis stand-in speaking RESP2, so the backend runs unchanged against it through
+ * Lettuce. It implements exactly what the backend uses: strings with expiry (SET EX/PX/NX, GET,
+ * MGET, EXPIRE, TTL), the popularity sorted sets, pattern pub/sub for single-flight, and the
+ * two Lua scripts by recognising their text (EVALSHA always answers NOSCRIPT, so Spring falls
+ * back to EVAL). Anything else is an error, which makes a new command show up in the first run.
+ *
+ * Like Redis, commands execute one at a time (here under one lock); expired keys are dropped
+ * when touched. Not for anything but load tests.
+ */
+final class MiniRedis implements AutoCloseable {
+
+    private static final byte[] OK = "+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final class Entry {
+        Object value; // byte[] or Map<String, Double> for a sorted set
+        long expiresAt; // epoch ms, 0 for never
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Entry> data = new HashMap<>();
+    private final Map<Connection, Set<String>> patterns = new ConcurrentHashMap<>();
+    private final ServerSocket socket;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+
+    MiniRedis() throws IOException {
+        this.socket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        connections.execute(this::accept);
+    }
+
+    int port() {
+        return socket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                client.setTcpNoDelay(true);
+                connections.execute(() -> serve(new Connection(client)));
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private final class Connection {
+        final Socket client;
+        final InputStream in;
+        final OutputStream out;
+
+        Connection(Socket client) {
+            this.client = client;
+            try {
+                this.in = new BufferedInputStream(client.getInputStream());
+                this.out = new BufferedOutputStream(client.getOutputStream());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        // Publishers write here too, so replies are written whole under the connection's lock
+        synchronized void write(byte[] reply, boolean flush) throws IOException {
+            out.write(reply);
+            if (flush)
+                out.flush();
+        }
+    }
+
+    private void serve(Connection connection) {
+        try (Socket ignored = connection.client) {
+            while (true) {
+                List<byte[]> command = readCommand(connection.in);
+                if (command.isEmpty())
+                    continue;
+                String name = text(command.get(0)).toUpperCase(Locale.ROOT);
+                byte[] reply = switch (name) {
+                    case "PSUBSCRIBE", "SUBSCRIBE" -> subscribe(connection, command, name.toLowerCase(Locale.ROOT));
+                    case "PUNSUBSCRIBE", "UNSUBSCRIBE" -> unsubscribe(connection, name.toLowerCase(Locale.ROOT));
+                    case "PUBLISH" -> integer(publish(text(command.get(1)), command.get(2)));
+                    case "QUIT" -> OK;
+                    default -> execute(name, command);
+                };
+                // Flush once the pipeline is drained
+                connection.write(reply, connection.in.available() == 0);
+                if (name.equals("QUIT"))
+                    return;
+            }
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            patterns.remove(connection);
+        }
+    }
+
+    private byte[] execute(String name, List<byte[]> c) {
+        try {
+            synchronized (data) {
+                return switch (name) {
+                    case "PING" -> c.size() > 1 ? bulk(c.get(1)) : "+PONG\r\n".getBytes(StandardCharsets.US_ASCII);
+                    case "CLIENT", "SELECT", "AUTH" -> OK;
+                    case "INFO" -> bulk("# Server\r\nredis_version:7.2.0\r\nredis_mode:standalone\r\n"
+                            .getBytes(StandardCharsets.US_ASCII));
+                    case "GET" -> bulk(string(text(c.get(1))));
+                    case "MGET" -> {
+                        List<byte[]> values = new ArrayList<>();
+                        for (int i = 1; i < c.size(); i++)
+                            values.add(string(text(c.get(i))));
+                        yield array(values);
+                    }
+                    case "SET" -> set(c);
+                    case "DEL" -> {
+                        int removed = 0;
+                        for (int i = 1; i < c.size(); i++) {
+                            if (live(text(c.get(i))) != null) {
+                                data.remove(text(c.get(i)));
+                                removed++;
+                            }
+                        }
+                        yield integer(removed);
+                    }
+                    case "EXISTS" -> {
+                        int found = 0;
+                        for (int i = 1; i < c.size(); i++)
+                            found += live(text(c.get(i))) != null ? 1 : 0;
+                        yield integer(found);
+                    }
+                    case "EXPIRE" -> integer(expire(text(c.get(1)), Long.parseLong(text(c.get(2))) * 1000));
+                    case "PEXPIRE" -> integer(expire(text(c.get(1)), Long.parseLong(text(c.get(2)))));
+                    case "TTL" -> integer(ttl(text(c.get(1)), 1000));
+                    case "PTTL" -> integer(ttl(text(c.get(1)), 1));
+                    case "ZINCRBY" -> {
+                        Map<String, Double> zset = zset(text(c.get(1)), true);
+                        double score = zset.merge(text(c.get(3)), Double.parseDouble(text(c.get(2))), Double::sum);
+                        yield bulk(number(score));
+                    }
+                    case "ZSCORE" -> {
+                        Map<String, Double> zset = zset(text(c.get(1)), false);
+                        Double score = zset == null ? null : zset.get(text(c.get(2)));
+                        yield bulk(score == null ? null : number(score));
+                    }
+                    case "ZCARD" -> {
+                        Map<String, Double> zset = zset(text(c.get(1)), false);
+                        yield integer(zset == null ? 0 : zset.size());
+                    }
+                    case "ZRANGE", "ZREVRANGE" -> range(c, name.equals("ZREVRANGE"));
+                    case "ZREMRANGEBYRANK" -> removeRange(c);
+                    case "ZUNIONSTORE" -> union(c);
+                    case "EVAL" -> eval(c);
+                    case "EVALSHA" -> error("NOSCRIPT No matching script. Please use EVAL.");
+                    default -> error("ERR unknown command '" + name + "'");
+                };
+            }
+        } catch (RuntimeException e) {
+            return error("ERR " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    // SET key value [EX s | PX ms] [NX | XX]
+    private byte[] set(List<byte[]> c) {
+        String key = text(c.get(1));
+        long expiresAt = 0;
+        boolean nx = false, xx = false;
+        for (int i = 3; i < c.size(); i++) {
+            switch (text(c.get(i)).toUpperCase(Locale.ROOT)) {
+                case "EX" -> expiresAt = System.currentTimeMillis() + Long.parseLong(text(c.get(++i))) * 1000;
+                case "PX" -> expiresAt = System.currentTimeMillis() + Long.parseLong(text(c.get(++i)));
+                case "NX" -> nx = true;
+                case "XX" -> xx = true;
+                default -> throw new IllegalArgumentException("unsupported SET option " + text(c.get(i)));
+            }
+        }
+        boolean exists = live(key) != null;
+        if ((nx && exists) || (xx && !exists))
+            return bulk(null);
+        data.put(key, new Entry(c.get(2), expiresAt));
+        return OK;
+    }
+
+    private int expire(String key, long ms) {
+        Entry entry = live(key);
+        if (entry == null)
+            return 0;
+        entry.expiresAt = System.currentTimeMillis() + ms;
+        return 1;
+    }
+
+    private long ttl(String key, long unitMs) {
+        Entry entry = live(key);
+        if (entry == null)
+            return -2;
+        if (entry.expiresAt == 0)
+            return -1;
+        return Math.max(0, (entry.expiresAt - System.currentTimeMillis()) / unitMs);
+    }
+
+    // The scripts PayloadStore and SingleFlightCache send, run natively
+    private byte[] eval(List<byte[]> c) {
+        String script = text(c.get(1));
+        String key = text(c.get(3));
+        if (script.contains("redis.call('ttl', KEYS[1])")) {
+            long seconds = Long.parseLong(text(c.get(4)));
+            long ttl = ttl(key, 1000);
+            if (ttl == -2)
+                return integer(0);
+            if (ttl >= 0 && ttl < seconds)
+                expire(key, seconds * 1000);
+            return integer(1);
+        }
+        if (script.contains("redis.call('get', KEYS[1]) == ARGV[1]")) {
+            byte[] value = string(key);
+            if (value != null && text(value).equals(text(c.get(4)))) {
+                data.remove(key);
+                return integer(1);
+            }
+            return integer(0);
+        }
+        return error("ERR script not supported by MiniRedis");
+    }
+
+    private byte[] range(List<byte[]> c, boolean reverse) {
+        List<Map.Entry<String, Double>> sorted = sorted(zset(text(c.get(1)), false), reverse);
+        boolean scores = c.size() > 4 && text(c.get(4)).equalsIgnoreCase("WITHSCORES");
+        List<byte[]> out = new ArrayList<>();
+        int[] span = span(sorted.size(), Long.parseLong(text(c.get(2))), Long.parseLong(text(c.get(3))));
+        for (int i = span[0]; i <= span[1]; i++) {
+            out.add(bytes(sorted.get(i).getKey()));
+            if (scores)
+                out.add(number(sorted.get(i).getValue()));
+        }
+        return array(out);
+    }
+
+    private byte[] removeRange(List<byte[]> c) {
+        Map<String, Double> zset = zset(text(c.get(1)), false);
+        List<Map.Entry<String, Double>> sorted = sorted(zset, false);
+        int[] span = span(sorted.size(), Long.parseLong(text(c.get(2))), Long.parseLong(text(c.get(3))));
+        int removed = 0;
+        for (int i = span[0]; i <= span[1]; i++, removed++)
+            zset.remove(sorted.get(i).getKey());
+        if (zset != null && zset.isEmpty())
+            data.remove(text(c.get(1)));
+        return integer(removed);
+    }
+
+    // ZUNIONSTORE dest numkeys key... [WEIGHTS w...] [AGGREGATE SUM|MIN|MAX]
+    private byte[] union(List<byte[]> c) {
+        int keys = Integer.parseInt(text(c.get(2)));
+        double[] weights = new double[keys];
+        Arrays.fill(weights, 1);
+        String aggregate = "SUM";
+        for (int i = 3 + keys; i < c.size(); i++) {
+            String option = text(c.get(i)).toUpperCase(Locale.ROOT);
+            if (option.equals("WEIGHTS")) {
+                for (int k = 0; k < keys; k++)
+                    weights[k] = Double.parseDouble(text(c.get(++i)));
+            } else if (option.equals("AGGREGATE")) {
+                aggregate = text(c.get(++i)).toUpperCase(Locale.ROOT);
+            }
+        }
+
+        Map<String, Double> result = new HashMap<>();
+        for (int k = 0; k < keys; k++) {
+            Map<String, Double> zset = zset(text(c.get(3 + k)), false);
+            if (zset == null)
+                continue;
+            for (Map.Entry<String, Double> e : zset.entrySet()) {
+                double score = e.getValue() * weights[k];
+                result.merge(e.getKey(), score, switch (aggregate) {
+                    case "MIN" -> Math::min;
+                    case "MAX" -> Math::max;
+                    default -> Double::sum;
+                });
+            }
+        }
+        String dest = text(c.get(1));
+        if (result.isEmpty())
+            data.remove(dest);
+        else
+            data.put(dest, new Entry(result, 0));
+        return integer(result.size());
+    }
+
+    private byte[] subscribe(Connection connection, List<byte[]> c, String kind) {
+        Set<String> subscribed = patterns.computeIfAbsent(connection, k -> ConcurrentHashMap.newKeySet());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 1; i < c.size(); i++) {
+            // Plain channels are stored as patterns that only match themselves
+            String pattern = text(c.get(i));
+            subscribed.add(kind.equals("subscribe") ? "=" + pattern : pattern);
+            out.writeBytes(array(List.of(bytes(kind), c.get(i), subscribed.size())));
+        }
+        return out.toByteArray();
+    }
+
+    // Only ever sent without arguments, when the listener container shuts down
+    private byte[] unsubscribe(Connection connection, String kind) {
+        patterns.remove(connection);
+        return array(Arrays.asList(bytes(kind), null, 0));
+    }
+
+    private int publish(String channel, byte[] message) throws IOException {
+        int delivered = 0;
+        for (Map.Entry<Connection, Set<String>> subscriber : patterns.entrySet()) {
+            for (String pattern : subscriber.getValue()) {
+                byte[] event;
+                if (pattern.startsWith("="))
+                    event = pattern.substring(1).equals(channel)
+                            ? array(List.of(bytes("message"), bytes(channel), message))
+                            : null;
+                else
+                    event = glob(pattern).matcher(channel).matches()
+                            ? array(List.of(bytes("pmessage"), bytes(pattern), bytes(channel), message))
+                            : null;
+                if (event != null) {
+                    subscriber.getKey().write(event, true);
+                    delivered++;
+                }
+            }
+        }
+        return delivered;
+    }
+
+    private Entry live(String key) {
+        Entry entry = data.get(key);
+        if (entry != null && entry.expiresAt != 0 && entry.expiresAt <= System.currentTimeMillis()) {
+            data.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private byte[] string(String key) {
+        Entry entry = live(key);
+        if (entry == null)
+            return null;
+        if (!(entry.value instanceof byte[] value))
+            throw new IllegalStateException("WRONGTYPE Operation against a key holding the wrong kind of value");
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Double> zset(String key, boolean create) {
+        Entry entry = live(key);
+        if (entry == null) {
+            if (!create)
+                return null;
+            entry = new Entry(new HashMap<String, Double>(), 0);
+            data.put(key, entry);
+        }
+        if (!(entry.value instanceof Map))
+            throw new IllegalStateException("WRONGTYPE Operation against a key holding the wrong kind of value");
+        return (Map<String, Double>) entry.value;
+    }
+
+    private static List<Map.Entry<String, Double>> sorted(Map<String, Double> zset, boolean reverse) {
+        if (zset == null)
+            return List.of();
+        Comparator<Map.Entry<String, Double>> order = Map.Entry.<String, Double>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey());
+        List<Map.Entry<String, Double>> entries = new ArrayList<>(zset.entrySet());
+        entries.sort(reverse ? order.reversed() : order);
+        return entries;
+    }
+
+    // Redis rank range semantics: negative indexes count from the end, bounds are clamped
+    private static int[] span(int size, long start, long stop) {
+        if (start < 0)
+            start = Math.max(0, size + start);
+        if (stop < 0)
+            stop = size + stop;
+        stop = Math.min(stop, size - 1L);
+        return start > stop ? new int[] { 0, -1 } : new int[] { (int) start, (int) stop };
+    }
+
+    private static Pattern glob(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (char ch : pattern.toCharArray()) {
+            switch (ch) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                default -> regex.append(Pattern.quote(String.valueOf(ch)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0)
+            throw new EOFException();
+        if (first != '*') {
+            // Inline command, as typed into telnet
+            String line = (char) first + readLine(in);
+            List<byte[]> parts = new ArrayList<>();
+            for (String part : line.trim().split("\\s+"))
+                if (!part.isEmpty())
+                    parts.add(bytes(part));
+            return parts;
+        }
+        int count = Integer.parseInt(readLine(in));
+        List<byte[]> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$')
+                throw new IOException("Expected bulk string");
+            int length = Integer.parseInt(readLine(in));
+            byte[] part = in.readNBytes(length);
+            if (part.length < length)
+                throw new EOFException();
+            in.skipNBytes(2);
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b < 0)
+                throw new EOFException();
+            line.append((char) b);
+        }
+        in.read(); // '\n'
+        return line.toString();
+    }
+
+    // Keys and members are kept byte for byte in ISO-8859-1 strings
+    private static String text(byte[] raw) {
+        return new String(raw, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] number(double value) {
+        return bytes(value == Math.rint(value) && !Double.isInfinite(value)
+                ? Long.toString((long) value)
+                : Double.toString(value));
+    }
+
+    private static byte[] integer(long value) {
+        return bytes(":" + value + "\r\n");
+    }
+
+    private static byte[] error(String message) {
+        return bytes("-" + message + "\r\n");
+    }
+
+    private static byte[] bulk(byte[] value) {
+        if (value == null)
+            return bytes("$-1\r\n");
+        ByteArrayOutputStream out = new ByteArrayOutputStream(value.length + 16);
+        out.writeBytes(bytes("$" + value.length + "\r\n"));
+        out.writeBytes(value);
+        out.writeBytes(bytes("\r\n"));
+        return out.toByteArray();
+    }
+
+    // Numbers become integer replies, everything else (byte[] or null) bulk strings
+    private static byte[] array(List<?> values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(bytes("*" + values.size() + "\r\n"));
+        for (Object value : values)
+            out.writeBytes(value instanceof Number n ? integer(n.longValue()) : bulk((byte[]) value));
+        return out.toByteArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        connections.shutdownNow();
+    }
+}
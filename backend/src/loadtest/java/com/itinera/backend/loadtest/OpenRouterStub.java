@@ -0,0 +1,184 @@
+package com.itinera.backend.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+/**
+ * Stand-in for OpenRouter's chat completions API, plain and streamed (SSE). The answer is built
+ * from the prompt so the backend's parsers accept it: a places list for the places prompt, and
+ * one day per input cluster for the itinerary prompt.
+ *
+ * Timing follows a model: time to first token from the latency model, then a fixed delay per
+ * ~4-token chunk; a plain call returns after the whole answer would have been written. Failed
+ * calls get a 502 with an OpenRouter-style error body.
+ */
+final class OpenRouterStub implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int CHUNK_CHARS = 16;
+    private static final String PLACES_MARKER = "tourist attractions in ";
+    private static final String INPUT_MARKER = "Input data:\n";
+
+    private final HttpServer server;
+    private final LatencyModel firstToken;
+    private final double chunkMs;
+
+    OpenRouterStub(LatencyModel firstToken, double chunkMs) throws IOException {
+        this.firstToken = firstToken;
+        this.chunkMs = chunkMs;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v1/chat/completions", this::complete);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v1/chat/completions";
+    }
+
+    private void complete(HttpExchange exchange) throws IOException {
+        try {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            String prompt = request.path("messages").path(0).path("content").asText("");
+            boolean stream = request.path("stream").asBoolean(false);
+
+            LatencyModel.sleep(firstToken.sampleMs());
+            if (firstToken.fails()) {
+                OsrmStub.respond(exchange, 502,
+                        "{\"error\":{\"message\":\"Provider returned error (stub)\",\"code\":502}}");
+                return;
+            }
+
+            String content = answer(prompt);
+            ObjectNode usage = MAPPER.createObjectNode()
+                    .put("prompt_tokens", prompt.length() / 4)
+                    .put("completion_tokens", content.length() / 4);
+            if (stream) {
+                stream(exchange, content, usage);
+                return;
+            }
+
+            pace(content.length());
+            ObjectNode body = MAPPER.createObjectNode();
+            body.putArray("choices").addObject().putObject("message").put("role", "assistant").put("content", content);
+            body.set("usage", usage);
+            OsrmStub.respond(exchange, 200, MAPPER.writeValueAsString(body));
+        } catch (IOException | RuntimeException e) {
+            // The client may have gone away mid-stream, in which case this goes nowhere
+            OsrmStub.respond(exchange, 500, "{\"error\":{\"message\":\"stub failure: " + e.getClass().getSimpleName()
+                    + "\"}}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void stream(HttpExchange exchange, String content, ObjectNode usage) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(": OPENROUTER PROCESSING\n\n".getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < content.length(); i += CHUNK_CHARS) {
+                ObjectNode event = MAPPER.createObjectNode();
+                event.putArray("choices").addObject().putObject("delta")
+                        .put("content", content.substring(i, Math.min(content.length(), i + CHUNK_CHARS)));
+                send(out, MAPPER.writeValueAsString(event));
+                pace(CHUNK_CHARS);
+            }
+            ObjectNode last = MAPPER.createObjectNode();
+            last.putArray("choices");
+            last.set("usage", usage);
+            send(out, MAPPER.writeValueAsString(last));
+            send(out, "[DONE]");
+        }
+    }
+
+    private static void send(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    // Time the model would take to write this many characters
+    private void pace(int chars) {
+        long ms = Math.round(Math.ceil(chars / (double) CHUNK_CHARS) * chunkMs);
+        if (ms > 0)
+            LatencyModel.sleep(ms);
+    }
+
+    static String answer(String prompt) throws IOException {
+        int places = prompt.indexOf(PLACES_MARKER);
+        if (places >= 0) {
+            String city = prompt.substring(places + PLACES_MARKER.length()).replaceAll("\\.$", "").trim();
+            return placesAnswer(city);
+        }
+        int input = prompt.indexOf(INPUT_MARKER);
+        if (input >= 0)
+            return itineraryAnswer(MAPPER.readTree(prompt.substring(input + INPUT_MARKER.length())));
+        return "{\"answer\":\"ok\"}";
+    }
+
+    // 20 attractions around the city's centre, the same ones every time for a city
+    private static String placesAnswer(String city) throws IOException {
+        double[] centre = Workload.centre(city);
+        Random random = new Random(city.hashCode());
+        ObjectNode root = MAPPER.createObjectNode();
+        ArrayNode list = root.putArray("places");
+        for (int i = 0; i < 20; i++) {
+            int open = 8 + random.nextInt(3);
+            int close = 17 + random.nextInt(5);
+            list.addObject()
+                    .put("name", city + " Attraction " + (i + 1))
+                    .put("description", "A well-known stop in " + city + ", busiest around midday.")
+                    .put("read_more_link", "https://example.org/" + i)
+                    .put("open_time", open + ":00")
+                    .put("close_time", close + ":00")
+                    .put("ideal_start_time", (open + 1) + ":00")
+                    .put("ideal_end_time", (close - 2) + ":00")
+                    .put("priority", 1 + random.nextInt(5))
+                    .put("latitude", centre[0] - 0.08 + random.nextDouble() * 0.16)
+                    .put("longitude", centre[1] - 0.08 + random.nextDouble() * 0.16);
+        }
+        return MAPPER.writeValueAsString(root);
+    }
+
+    private static String itineraryAnswer(JsonNode input) throws IOException {
+        ObjectNode root = MAPPER.createObjectNode();
+        ArrayNode days = root.putArray("itinerary");
+        int d = 0;
+        for (JsonNode cluster : input.path("optimizedItineraries")) {
+            ObjectNode day = days.addObject().put("clusterName", "Day " + (++d) + " Highlights");
+            ArrayNode schedule = day.putArray("schedule");
+            int minute = 570;
+            for (JsonNode place : cluster) {
+                schedule.addObject()
+                        .put("time", clock(minute))
+                        .put("activity", place.path("name").asText())
+                        .put("description", "Start at the main entrance and follow the marked route. "
+                                + "Allow extra time for queues on weekends.");
+                minute += Math.max(30, place.path("exploreTime").asInt(60)) + 20;
+            }
+        }
+        return MAPPER.writeValueAsString(root);
+    }
+
+    private static String clock(int minute) {
+        int h = minute / 60 % 24;
+        return (h % 12 == 0 ? 12 : h % 12) + ":" + String.format(Locale.ROOT, "%02d", minute % 60) + (h < 12 ? " AM" : " PM");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,50 @@
+package com.itinera.backend.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * key=value settings from the command line. Maven passes them as one argument, so every
+ * argument is split on whitespace first.
+ */
+final class Options {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    Options(String[] args) {
+        for (String arg : args) {
+            for (String token : arg.trim().split("\\s+")) {
+                if (token.isEmpty())
+                    continue;
+                int eq = token.indexOf('=');
+                if (eq <= 0)
+                    throw new IllegalArgumentException("Expected key=value, got " + token);
+                values.put(token.substring(0, eq).replaceFirst("^--", ""), token.substring(eq + 1));
+            }
+        }
+    }
+
+    String string(String key, String fallback) {
+        return values.getOrDefault(key, fallback);
+    }
+
+    double number(String key, double fallback) {
+        String value = values.get(key);
+        return value == null ? fallback : Double.parseDouble(value);
+    }
+
+    /** Settings under {@code prefix}, with the prefix removed. */
+    Map<String, String> under(String prefix) {
+        Map<String, String> matching = new HashMap<>();
+        values.forEach((key, value) -> {
+            if (key.startsWith(prefix))
+                matching.put(key.substring(prefix.length()), value);
+        });
+        return matching;
+    }
+
+    int integer(String key, int fallback) {
+        String value = values.get(key);
+        return value == null ? fallback : Integer.parseInt(value);
+    }
+}
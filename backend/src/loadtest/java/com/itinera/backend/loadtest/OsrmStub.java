@@ -0,0 +1,142 @@
+package com.itinera.backend.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Stand-in for OSRM's /table/v1 service. Answers with road-like distances (straight line times
+ * a fixed detour) and durations at city speed, honouring the sources/destinations parameters,
+ * after a delay drawn from the latency model. Failed calls get a 429, as the public demo server
+ * sends when it is overloaded.
+ */
+final class OsrmStub implements AutoCloseable {
+
+    private static final double DETOUR = 1.35;
+    private static final double METERS_PER_SECOND = 7.5;
+
+    private final HttpServer server;
+    private final LatencyModel latency;
+
+    OsrmStub(LatencyModel latency) throws IOException {
+        this.latency = latency;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/table/v1/", this::table);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void table(HttpExchange exchange) throws IOException {
+        try {
+            LatencyModel.sleep(latency.sampleMs());
+            if (latency.fails()) {
+                respond(exchange, 429, "{\"code\":\"TooManyRequests\",\"message\":\"stub overload\"}");
+                return;
+            }
+
+            // /table/v1/{profile}/{lon,lat;lon,lat;...}
+            String path = exchange.getRequestURI().getRawPath();
+            String[] coords = path.substring(path.lastIndexOf('/') + 1).split(";");
+            double[] lon = new double[coords.length];
+            double[] lat = new double[coords.length];
+            for (int i = 0; i < coords.length; i++) {
+                int comma = coords[i].indexOf(',');
+                lon[i] = Double.parseDouble(coords[i].substring(0, comma));
+                lat[i] = Double.parseDouble(coords[i].substring(comma + 1));
+            }
+
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            int[] sources = indexes(query.get("sources"), coords.length);
+            int[] destinations = indexes(query.get("destinations"), coords.length);
+            respond(exchange, 200, tableBody(lat, lon, sources, destinations));
+        } catch (RuntimeException e) {
+            respond(exchange, 400, "{\"code\":\"InvalidQuery\",\"message\":\"" + e.getMessage() + "\"}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    static String tableBody(double[] lat, double[] lon, int[] sources, int[] destinations) {
+        StringBuilder distances = new StringBuilder("[");
+        StringBuilder durations = new StringBuilder("[");
+        for (int a = 0; a < sources.length; a++) {
+            distances.append(a == 0 ? "[" : ",[");
+            durations.append(a == 0 ? "[" : ",[");
+            for (int b = 0; b < destinations.length; b++) {
+                int i = sources[a], j = destinations[b];
+                double meters = i == j ? 0 : km(lat[i], lon[i], lat[j], lon[j]) * 1000 * DETOUR;
+                if (b > 0) {
+                    distances.append(',');
+                    durations.append(',');
+                }
+                distances.append(String.format(Locale.ROOT, "%.1f", meters));
+                durations.append(String.format(Locale.ROOT, "%.1f", meters / METERS_PER_SECOND));
+            }
+            distances.append(']');
+            durations.append(']');
+        }
+        return "{\"code\":\"Ok\",\"distances\":" + distances.append(']') + ",\"durations\":" + durations.append(']')
+                + "}";
+    }
+
+    private static int[] indexes(String list, int count) {
+        if (list == null || list.equals("all")) {
+            int[] all = new int[count];
+            for (int i = 0; i < count; i++)
+                all[i] = i;
+            return all;
+        }
+        String[] parts = list.split(";");
+        int[] out = new int[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            out[i] = Integer.parseInt(parts[i]);
+        return out;
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null)
+            return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0)
+                params.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static double km(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371 * 2 * Math.atan2(Math.sqrt(h), Math.sqrt(1 - h));
+    }
+
+    static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,191 @@
+package com.itinera.backend.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itinera.backend.model.GenerateOrderRequest;
+import com.itinera.backend.model.Hotel;
+import com.itinera.backend.model.ItineraryRequest;
+import com.itinera.backend.model.Place;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The request mix the driver replays. Trips are drawn from a fixed set of cities, each with a
+ * pool of 60 attractions; a share of requests ({@code repeat}) are popular trips that many users
+ * send in identical form, the rest are unique, so cache hit rates land somewhere realistic
+ * rather than at 0% or 100%.
+ */
+final class Workload {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int POOL_SIZE = 60;
+    private static final int POPULAR_TRIPS = 20;
+
+    private static final Map<String, double[]> CITIES = new LinkedHashMap<>();
+
+    static {
+        CITIES.put("New Delhi", new double[] { 28.6139, 77.2090 });
+        CITIES.put("Paris", new double[] { 48.8566, 2.3522 });
+        CITIES.put("Tokyo", new double[] { 35.6762, 139.6503 });
+        CITIES.put("New York", new double[] { 40.7128, -74.0060 });
+        CITIES.put("Rome", new double[] { 41.9028, 12.4964 });
+        CITIES.put("Bangkok", new double[] { 13.7563, 100.5018 });
+    }
+
+    enum Kind {
+        PLAN("POST /api/algorithm/generate"),
+        ITINERARY("POST /api/itinerary/generate"),
+        STREAM("POST /api/itinerary/generate/stream"),
+        PLACES("POST /api/places/generate");
+
+        final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Map<String, List<Place>> pools = new LinkedHashMap<>();
+    private final List<String> cities = new ArrayList<>(CITIES.keySet());
+    private final Kind[] kinds;
+    private final double[] cumulative;
+    private final double repeat;
+
+    /** {@code mix} is "plan:6,itinerary:3,stream:1,places:1"; missing kinds get no traffic. */
+    Workload(String mix, double repeat) {
+        List<Kind> kinds = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split(":");
+            double weight = kv.length > 1 ? Double.parseDouble(kv[1]) : 1;
+            if (weight > 0) {
+                kinds.add(Kind.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)));
+                weights.add(weight);
+            }
+        }
+        if (kinds.isEmpty())
+            throw new IllegalArgumentException("Empty request mix: " + mix);
+
+        this.kinds = kinds.toArray(Kind[]::new);
+        this.cumulative = new double[weights.size()];
+        double total = weights.stream().mapToDouble(Double::doubleValue).sum();
+        double sum = 0;
+        for (int i = 0; i < cumulative.length; i++)
+            cumulative[i] = (sum += weights.get(i)) / total;
+        this.repeat = repeat;
+
+        for (String city : cities)
+            pools.put(city, pool(city));
+    }
+
+    static double[] centre(String city) {
+        double[] known = CITIES.get(city);
+        if (known != null)
+            return known;
+        Random random = new Random(city.hashCode());
+        return new double[] { -50 + random.nextDouble() * 100, -150 + random.nextDouble() * 300 };
+    }
+
+    Kind nextKind() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        for (int i = 0; i < kinds.length; i++)
+            if (r < cumulative[i])
+                return kinds[i];
+        return kinds[kinds.length - 1];
+    }
+
+    HttpRequest request(Kind kind, String baseUrl) throws JsonProcessingException {
+        Trip trip = trip();
+        String city = URLEncoder.encode(trip.city, StandardCharsets.UTF_8);
+        HttpRequest.Builder builder = switch (kind) {
+            case PLAN -> post(baseUrl + "/api/algorithm/generate", trip.order);
+            case ITINERARY -> post(baseUrl + "/api/itinerary/generate?city=" + city, trip.itinerary());
+            case STREAM -> post(baseUrl + "/api/itinerary/generate/stream?city=" + city, trip.itinerary())
+                    .header("Accept", "text/event-stream");
+            case PLACES -> post(baseUrl + "/api/places/generate", Map.of("location", trip.city));
+        };
+        return builder.timeout(Duration.ofSeconds(120)).build();
+    }
+
+    // The services report some failures inside a 200, so the body is checked too
+    static boolean succeeded(Kind kind, HttpResponse<String> response) {
+        if (response.statusCode() / 100 != 2)
+            return false;
+        String body = response.body();
+        return switch (kind) {
+            case ITINERARY, PLACES -> body.contains("\"sessionId\"") && !body.contains("\"Error");
+            case STREAM -> body.contains("event:done") && !body.contains("event:error");
+            case PLAN -> body.contains("\"schedules\"");
+        };
+    }
+
+    private record Trip(String city, GenerateOrderRequest order) {
+        // Days as the planner would hand them on: the places split into geographic runs
+        ItineraryRequest itinerary() {
+            List<Place> places = new ArrayList<>(order.getPlaces());
+            places.sort(Comparator.comparingDouble(Place::getLongitude));
+            List<List<Place>> days = new ArrayList<>();
+            int perDay = (places.size() + order.getDays() - 1) / order.getDays();
+            for (int i = 0; i < places.size(); i += perDay)
+                days.add(places.subList(i, Math.min(places.size(), i + perDay)));
+            ItineraryRequest request = new ItineraryRequest();
+            request.setOptimizedItineraries(days);
+            return request;
+        }
+    }
+
+    private Trip trip() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long seed = random.nextDouble() < repeat ? random.nextInt(POPULAR_TRIPS) : random.nextLong();
+        Random trip = new Random(seed);
+        String city = cities.get(trip.nextInt(cities.size()));
+        List<Place> pool = new ArrayList<>(pools.get(city));
+        int days = 1 + trip.nextInt(4);
+        int count = Math.min(pool.size(), days * (3 + trip.nextInt(4)));
+        Collections.shuffle(pool, trip);
+
+        double[] centre = centre(city);
+        Hotel hotel = new Hotel(city + " Central Hotel", centre[0] + (trip.nextDouble() - 0.5) * 0.02,
+                centre[1] + (trip.nextDouble() - 0.5) * 0.02);
+        GenerateOrderRequest order = new GenerateOrderRequest();
+        order.setDays(days);
+        order.setHotel(hotel);
+        order.setPlaces(pool.subList(0, count));
+        return new Trip(city, order);
+    }
+
+    // Attractions within ~15 km of the centre, with realistic hours and visit lengths
+    private static List<Place> pool(String city) {
+        double[] centre = centre(city);
+        Random random = new Random(city.hashCode());
+        List<Place> places = new ArrayList<>(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            int open = 480 + random.nextInt(5) * 30;
+            int close = 1020 + random.nextInt(9) * 30;
+            places.add(new Place(city + " Attraction " + (i + 1), "", centre[0] - 0.13 + random.nextDouble() * 0.26,
+                    centre[1] - 0.13 + random.nextDouble() * 0.26, open, close, open + 60, close - 120,
+                    30 + random.nextInt(7) * 15, 1 + random.nextInt(5)));
+        }
+        return places;
+    }
+
+    private static HttpRequest.Builder post(String url, Object body) throws JsonProcessingException {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(body)));
+    }
+}
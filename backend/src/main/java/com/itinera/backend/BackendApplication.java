@@ -6,7 +6,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 @SpringBootApplication(scanBasePackages = {
 		"com.itinera.backend.api",
 		"com.itinera.backend.service",
-		"com.itinera.backend.model"
+		"com.itinera.backend.model",
+		"com.itinera.backend.config"
 })
 public class BackendApplication {
 
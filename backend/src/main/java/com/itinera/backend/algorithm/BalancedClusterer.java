@@ -0,0 +1,164 @@
+package com.itinera.backend.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Capacity-constrained day clustering.
+ *
+ * A day's load is the sum of its places' service minutes plus a travel estimate (minutes from
+ * each place to the day's centroid). Starting from geographic K-Means centroids, places are
+ * handed out in order of regret — the ones that lose most by leaving their nearest centroid go
+ * first — each to the nearest day that still has room under both the load capacity and the stop
+ * cap. Centroids are then recomputed and the assignment repeated until it settles.
+ *
+ * The stop cap is hard; the load capacity is soft (a place that fits nowhere goes to the
+ * lightest day with a free slot). Every day gets at least one place and every place exactly one
+ * day.
+ */
+public class BalancedClusterer {
+
+    private final int maxIterations;
+    private final double slack;
+
+    /**
+     * @param slack how far above the mean daily load a day may grow, e.g. 0.15 for 15%
+     */
+    public BalancedClusterer(int maxIterations, double slack) {
+        this.maxIterations = maxIterations;
+        this.slack = slack;
+    }
+
+    /**
+     * @param serviceMinutes time spent at each place
+     * @param maxStops       stop cap per day; raised to ceil(n / k) if that is needed to fit
+     * @param minutesPerKm   travel estimate per straight-line km
+     * @param initial        starting assignment, typically plain K-Means
+     */
+    public KMeansClusterer.Clustering cluster(double[] lat, double[] lon, double[] serviceMinutes, int k,
+            int maxStops, double minutesPerKm, int[] initial) {
+        int n = lat.length;
+        if (k <= 0 || k > n)
+            throw new IllegalArgumentException("k must be between 1 and the number of points");
+        maxStops = Math.max(maxStops, (n + k - 1) / k);
+
+        double[] x = new double[n];
+        double[] y = new double[n];
+        KMeansClusterer.project(lat, lon, x, y);
+
+        double[] cx = new double[k];
+        double[] cy = new double[k];
+        int[] assignment = initial.clone();
+        int[] next = new int[n];
+        double[] load = new double[k];
+        int[] count = new int[k];
+        double[] regret = new double[n];
+        Integer[] order = new Integer[n];
+
+        int iteration = 0;
+        while (iteration < maxIterations) {
+            iteration++;
+            centroids(x, y, assignment, cx, cy, count);
+
+            // Capacity from the unconstrained (nearest-centroid) loads
+            double total = 0;
+            for (int i = 0; i < n; i++) {
+                double first = Double.MAX_VALUE;
+                double second = Double.MAX_VALUE;
+                for (int c = 0; c < k; c++) {
+                    double d = dist(x[i], y[i], cx[c], cy[c]);
+                    if (d < first) {
+                        second = first;
+                        first = d;
+                    } else if (d < second) {
+                        second = d;
+                    }
+                }
+                total += serviceMinutes[i] + minutesPerKm * first;
+                regret[i] = k == 1 ? 0 : second - first;
+                order[i] = i;
+            }
+            double capacity = total / k * (1 + slack);
+
+            Arrays.fill(next, -1);
+            Arrays.fill(load, 0);
+            Arrays.fill(count, 0);
+
+            // Anchor each day with the place closest to its centroid so no day ends up empty
+            for (int c = 0; c < k; c++) {
+                int anchor = -1;
+                double best = Double.MAX_VALUE;
+                for (int i = 0; i < n; i++) {
+                    if (next[i] >= 0)
+                        continue;
+                    double d = dist(x[i], y[i], cx[c], cy[c]);
+                    if (d < best) {
+                        best = d;
+                        anchor = i;
+                    }
+                }
+                place(anchor, c, next, load, count, serviceMinutes[anchor] + minutesPerKm * best);
+            }
+
+            Arrays.sort(order, (a, b) -> regret[a] != regret[b] ? Double.compare(regret[b], regret[a]) : a - b);
+            for (int idx = 0; idx < n; idx++) {
+                int i = order[idx];
+                if (next[i] >= 0)
+                    continue;
+
+                int fit = -1;
+                double fitDist = Double.MAX_VALUE;
+                int overflow = -1;
+                double overflowLoad = Double.MAX_VALUE;
+                for (int c = 0; c < k; c++) {
+                    if (count[c] >= maxStops)
+                        continue;
+                    double d = dist(x[i], y[i], cx[c], cy[c]);
+                    double after = load[c] + serviceMinutes[i] + minutesPerKm * d;
+                    if (after <= capacity && d < fitDist) {
+                        fitDist = d;
+                        fit = c;
+                    }
+                    if (after < overflowLoad) {
+                        overflowLoad = after;
+                        overflow = c;
+                    }
+                }
+                int c = fit >= 0 ? fit : overflow;
+                place(i, c, next, load, count, serviceMinutes[i] + minutesPerKm * dist(x[i], y[i], cx[c], cy[c]));
+            }
+
+            boolean changed = !Arrays.equals(assignment, next);
+            System.arraycopy(next, 0, assignment, 0, n);
+            if (!changed)
+                break;
+        }
+        return new KMeansClusterer.Clustering(assignment, iteration);
+    }
+
+    private static void place(int i, int c, int[] assignment, double[] load, int[] count, double cost) {
+        assignment[i] = c;
+        load[c] += cost;
+        count[c]++;
+    }
+
+    private static void centroids(double[] x, double[] y, int[] assignment, double[] cx, double[] cy, int[] count) {
+        Arrays.fill(cx, 0);
+        Arrays.fill(cy, 0);
+        Arrays.fill(count, 0);
+        for (int i = 0; i < x.length; i++) {
+            cx[assignment[i]] += x[i];
+            cy[assignment[i]] += y[i];
+            count[assignment[i]]++;
+        }
+        for (int c = 0; c < cx.length; c++) {
+            cx[c] /= count[c];
+            cy[c] /= count[c];
+        }
+    }
+
+    private static double dist(double x1, double y1, double x2, double y2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
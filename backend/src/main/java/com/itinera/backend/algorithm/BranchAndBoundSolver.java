@@ -0,0 +1,101 @@
+package com.itinera.backend.algorithm;
+
+/**
+ * Depth-first branch-and-bound for medium-sized days.
+ *
+ * The incumbent is seeded from a heuristic solver, children are tried cheapest edge first,
+ * and a partial route is pruned when its cost plus the cheapest possible way into every
+ * remaining node (and back to the hotel) cannot beat the incumbent. If the node budget runs
+ * out (or the thread is interrupted) the best route found so far is returned, which is never
+ * worse than the seed.
+ */
+public class BranchAndBoundSolver implements RouteSolver {
+
+    private final RouteSolver seed;
+    private final long nodeBudget;
+
+    public BranchAndBoundSolver(RouteSolver seed, long nodeBudget) {
+        this.seed = seed;
+        this.nodeBudget = nodeBudget;
+    }
+
+    @Override
+    public Route solve(double[] cost, int size) {
+        Route incumbent = seed.solve(cost, size);
+        int n = size - 1;
+        if (n <= 1)
+            return incumbent;
+
+        Search search = new Search(cost, size, incumbent, nodeBudget);
+        search.run();
+        return new Route(search.bestOrder, search.bestCost, incumbent.explored + search.explored);
+    }
+
+    private static final class Search {
+        private final double[] cost;
+        private final int size;
+        private final long budget;
+
+        private final double[] minIn; // cheapest edge into each node
+        private final int[][] neighbours; // successors of each node, cheapest first
+        private final boolean[] visited;
+        private final int[] path;
+
+        private double bestCost;
+        private int[] bestOrder;
+        private long explored;
+
+        Search(double[] cost, int size, Route incumbent, long budget) {
+            this.cost = cost;
+            this.size = size;
+            this.budget = budget;
+            this.bestCost = incumbent.cost;
+            this.bestOrder = incumbent.order.clone();
+            this.visited = new boolean[size];
+            this.path = new int[size - 1];
+
+            this.minIn = SearchTables.minIncoming(cost, size);
+            this.neighbours = SearchTables.neighboursByCost(cost, size);
+        }
+
+        void run() {
+            double remaining = 0;
+            for (int j = 0; j < size; j++)
+                remaining += minIn[j];
+            visited[0] = true;
+            dfs(0, 0, 0, remaining);
+        }
+
+        // remaining = sum of minIn over unvisited places plus the hotel (return edge)
+        private void dfs(int current, int depth, double partial, double remaining) {
+            // Out of budget or cancelled: keep the incumbent. explored stops moving, so every
+            // pending frame returns through this check as well.
+            if (explored >= budget || ((explored & 0x3FF) == 0 && Thread.currentThread().isInterrupted()))
+                return;
+            explored++;
+
+            if (depth == path.length) {
+                double total = partial + cost[current * size];
+                if (total < bestCost) {
+                    bestCost = total;
+                    bestOrder = path.clone();
+                }
+                return;
+            }
+
+            for (int next : neighbours[current]) {
+                if (visited[next])
+                    continue;
+                double step = partial + cost[current * size + next];
+                double rest = remaining - minIn[next];
+                if (step + rest >= bestCost)
+                    continue;
+
+                visited[next] = true;
+                path[depth] = next;
+                dfs(next, depth + 1, step, rest);
+                visited[next] = false;
+            }
+        }
+    }
+}
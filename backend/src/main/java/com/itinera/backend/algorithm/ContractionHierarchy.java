@@ -0,0 +1,302 @@
+package com.itinera.backend.algorithm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Read side of a contraction hierarchy written by {@link ContractionHierarchyBuilder}.
+ *
+ * The graph file is memory-mapped read-only, so loading is instant and the OS page cache is
+ * shared between processes. Many-to-many tables use the bucket algorithm: one backward upward
+ * search per target leaves (target, duration, distance) entries on every node it settles, then
+ * one forward upward search per source scans those buckets. Search spaces in a CH are tiny
+ * compared to plain Dijkstra, so a city-sized table takes well under a millisecond.
+ */
+public final class ContractionHierarchy {
+
+    private static final double SNAP_CELL_DEGREES = 0.005; // roughly 500 m
+
+    private final int nodeCount;
+    private final FloatBuffer lat;
+    private final FloatBuffer lon;
+    private final Graph forward; // edges to higher-ranked nodes
+    private final Graph backward; // reversed edges from higher-ranked nodes
+
+    // Snapping index: node ids sorted by grid cell
+    private final long[] cellKeys;
+    private final int[] cellNodes;
+
+    private ContractionHierarchy(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != ContractionHierarchyBuilder.MAGIC)
+            throw new IOException("Not a contraction hierarchy file");
+        if (buffer.getInt(4) != ContractionHierarchyBuilder.VERSION)
+            throw new IOException("Unsupported contraction hierarchy version " + buffer.getInt(4));
+
+        nodeCount = buffer.getInt(8);
+        int fwdCount = buffer.getInt(12);
+        int bwdCount = buffer.getInt(16);
+
+        int offset = 20;
+        lat = buffer.slice(offset, 4 * nodeCount).asFloatBuffer();
+        offset += 4 * nodeCount;
+        lon = buffer.slice(offset, 4 * nodeCount).asFloatBuffer();
+        offset += 4 * nodeCount;
+        forward = new Graph(buffer, offset, nodeCount, fwdCount);
+        offset += forward.bytes();
+        backward = new Graph(buffer, offset, nodeCount, bwdCount);
+
+        // Build the snapping grid on the heap: one key per node
+        Integer[] order = new Integer[nodeCount];
+        long[] keys = new long[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            order[i] = i;
+            keys[i] = cellKey(cell(lat.get(i)), cell(lon.get(i)));
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> keys[i]));
+        cellKeys = new long[nodeCount];
+        cellNodes = new int[nodeCount];
+        for (int k = 0; k < nodeCount; k++) {
+            cellNodes[k] = order[k];
+            cellKeys[k] = keys[order[k]];
+        }
+    }
+
+    public static ContractionHierarchy load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ContractionHierarchy(buffer);
+        }
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Closest graph node to the coordinate, searching grid rings outward from its cell.
+     */
+    public int nearestNode(double latitude, double longitude) {
+        int cy = cell(latitude), cx = cell(longitude);
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        int best = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+
+        int maxRing = 64;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dy = -ring; dy <= ring; dy++) {
+                for (int dx = -ring; dx <= ring; dx++) {
+                    if (Math.abs(dy) != ring && Math.abs(dx) != ring)
+                        continue; // only the ring's border
+                    long key = cellKey(cy + dy, cx + dx);
+                    for (int k = firstIndex(key); k < cellKeys.length && cellKeys[k] == key; k++) {
+                        int node = cellNodes[k];
+                        double y = lat.get(node) - latitude;
+                        double x = (lon.get(node) - longitude) * cosLat;
+                        double d = x * x + y * y;
+                        if (d < bestDist) {
+                            bestDist = d;
+                            best = node;
+                        }
+                    }
+                }
+            }
+            // Anything in the next ring is at least `ring` cells away
+            if (best >= 0 && Math.sqrt(bestDist) <= ring * SNAP_CELL_DEGREES * Math.min(1, cosLat))
+                return best;
+        }
+        if (best >= 0)
+            return best;
+
+        // Far away from every cell: linear scan
+        for (int node = 0; node < nodeCount; node++) {
+            double y = lat.get(node) - latitude;
+            double x = (lon.get(node) - longitude) * cosLat;
+            double d = x * x + y * y;
+            if (d < bestDist) {
+                bestDist = d;
+                best = node;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Fills row-major |sources| × |targets| tables of durations (seconds) and distances (meters)
+     * between graph nodes. Unreachable pairs are +Infinity.
+     */
+    public void manyToMany(int[] sources, int[] targets, float[] durations, float[] distances) {
+        int cols = targets.length;
+        Arrays.fill(durations, 0, sources.length * cols, Float.POSITIVE_INFINITY);
+        Arrays.fill(distances, 0, sources.length * cols, Float.POSITIVE_INFINITY);
+
+        // Bucket entries as linked lists per node: head[node] -> entry -> next entry
+        Map<Integer, Integer> head = new HashMap<>();
+        IntList bucketTarget = new IntList();
+        IntList bucketNext = new IntList();
+        DoubleList bucketDuration = new DoubleList();
+        DoubleList bucketDistance = new DoubleList();
+
+        for (int b = 0; b < cols; b++) {
+            final int column = b;
+            upwardSearch(backward, targets[b], (node, duration, distance) -> {
+                Integer previous = head.get(node);
+                head.put(node, bucketTarget.size());
+                bucketTarget.add(column);
+                bucketNext.add(previous == null ? -1 : previous);
+                bucketDuration.add(duration);
+                bucketDistance.add(distance);
+            });
+        }
+
+        for (int a = 0; a < sources.length; a++) {
+            final int row = a * cols;
+            upwardSearch(forward, sources[a], (node, duration, distance) -> {
+                Integer entry = head.get(node);
+                for (int e = entry == null ? -1 : entry; e >= 0; e = bucketNext.get(e)) {
+                    int cell = row + bucketTarget.get(e);
+                    double total = duration + bucketDuration.get(e);
+                    if (total < durations[cell]) {
+                        durations[cell] = (float) total;
+                        distances[cell] = (float) (distance + bucketDistance.get(e));
+                    }
+                }
+            });
+        }
+    }
+
+    private interface Settled {
+        void accept(int node, double duration, double distance);
+    }
+
+    // Plain Dijkstra restricted to one upward graph
+    private void upwardSearch(Graph graph, int start, Settled visitor) {
+        Map<Integer, double[]> best = new HashMap<>(); // node -> {duration, distance}
+        PriorityQueue<double[]> queue = new PriorityQueue<>(Comparator.comparingDouble((double[] e) -> e[0]));
+        best.put(start, new double[] { 0, 0 });
+        queue.add(new double[] { 0, 0, start });
+
+        while (!queue.isEmpty()) {
+            double[] top = queue.poll();
+            int node = (int) top[2];
+            if (top[0] > best.get(node)[0])
+                continue;
+            visitor.accept(node, top[0], top[1]);
+
+            for (int e = graph.first(node), end = graph.first(node + 1); e < end; e++) {
+                int next = graph.target(e);
+                double duration = top[0] + graph.duration(e);
+                double[] known = best.get(next);
+                if (known == null || duration < known[0]) {
+                    double distance = top[1] + graph.distance(e);
+                    best.put(next, new double[] { duration, distance });
+                    queue.add(new double[] { duration, distance, next });
+                }
+            }
+        }
+    }
+
+    private int firstIndex(long key) {
+        int lo = 0, hi = cellKeys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cellKeys[mid] < key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private static int cell(double degrees) {
+        return (int) Math.floor(degrees / SNAP_CELL_DEGREES);
+    }
+
+    private static long cellKey(int y, int x) {
+        return ((long) y << 32) | (x & 0xffffffffL);
+    }
+
+    /**
+     * CSR view over the mapped file: first[n + 1], target[m], duration[m], distance[m].
+     */
+    private static final class Graph {
+        private final IntBuffer first;
+        private final IntBuffer target;
+        private final FloatBuffer duration;
+        private final FloatBuffer distance;
+        private final int edgeCount;
+        private final int nodeCount;
+
+        Graph(ByteBuffer buffer, int offset, int nodeCount, int edgeCount) {
+            this.nodeCount = nodeCount;
+            this.edgeCount = edgeCount;
+            first = buffer.slice(offset, 4 * (nodeCount + 1)).asIntBuffer();
+            offset += 4 * (nodeCount + 1);
+            target = buffer.slice(offset, 4 * edgeCount).asIntBuffer();
+            offset += 4 * edgeCount;
+            duration = buffer.slice(offset, 4 * edgeCount).asFloatBuffer();
+            offset += 4 * edgeCount;
+            distance = buffer.slice(offset, 4 * edgeCount).asFloatBuffer();
+        }
+
+        int bytes() {
+            return 4 * (nodeCount + 1) + 12 * edgeCount;
+        }
+
+        int first(int node) {
+            return first.get(node);
+        }
+
+        int target(int edge) {
+            return target.get(edge);
+        }
+
+        float duration(int edge) {
+            return duration.get(edge);
+        }
+
+        float distance(int edge) {
+            return distance.get(edge);
+        }
+    }
+
+    private static final class IntList {
+        private int[] data = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == data.length)
+                data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        int get(int i) {
+            return data[i];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    private static final class DoubleList {
+        private double[] data = new double[64];
+        private int size;
+
+        void add(double value) {
+            if (size == data.length)
+                data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        double get(int i) {
+            return data[i];
+        }
+    }
+}
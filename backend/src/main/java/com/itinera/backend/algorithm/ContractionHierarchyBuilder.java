@@ -0,0 +1,266 @@
+package com.itinera.backend.algorithm;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Offline preprocessing for {@link ContractionHierarchy}: contracts a directed road graph and
+ * writes the upward search graphs to a file that the query side memory-maps.
+ *
+ * Nodes are contracted in lazily-updated edge-difference order; a shortcut u→w is only added
+ * when a bounded witness search cannot find a path at most as fast as u→v→w. Edge weights are
+ * durations (seconds); distances (meters) ride along so queries can report both.
+ *
+ * The input is a plain edge list, e.g. exported from an OSM extract:
+ * {@code java ... ContractionHierarchyBuilder nodes.csv edges.csv graph.ch}
+ * with {@code nodes.csv} holding "lat,lon" per line (node id = line number) and
+ * {@code edges.csv} holding "from,to,durationSeconds,distanceMeters".
+ */
+public class ContractionHierarchyBuilder {
+
+    static final int MAGIC = 0x49434831; // "ICH1"
+    static final int VERSION = 1;
+
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final List<double[]> coords = new ArrayList<>();
+    private final List<Map<Integer, double[]>> out = new ArrayList<>(); // target -> {duration, distance}
+    private final List<Map<Integer, double[]>> in = new ArrayList<>(); // source -> {duration, distance}
+
+    public int addNode(double lat, double lon) {
+        coords.add(new double[] { lat, lon });
+        out.add(new HashMap<>());
+        in.add(new HashMap<>());
+        return coords.size() - 1;
+    }
+
+    /**
+     * Adds a directed edge; of parallel edges only the fastest is kept.
+     */
+    public void addEdge(int from, int to, double durationSeconds, double distanceMeters) {
+        if (from == to)
+            return;
+        double[] existing = out.get(from).get(to);
+        if (existing != null && existing[0] <= durationSeconds)
+            return;
+        double[] edge = { durationSeconds, distanceMeters };
+        out.get(from).put(to, edge);
+        in.get(to).put(from, edge);
+    }
+
+    public void write(Path file) throws IOException {
+        int n = coords.size();
+        List<int[]> fwdTargets = new ArrayList<>(n);
+        List<double[][]> fwdWeights = new ArrayList<>(n);
+        List<int[]> bwdTargets = new ArrayList<>(n);
+        List<double[][]> bwdWeights = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            fwdTargets.add(null);
+            fwdWeights.add(null);
+            bwdTargets.add(null);
+            bwdWeights.add(null);
+        }
+
+        contract(fwdTargets, fwdWeights, bwdTargets, bwdWeights);
+
+        try (OutputStream os = Files.newOutputStream(file);
+                DataOutputStream data = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+            int fwdCount = fwdTargets.stream().mapToInt(t -> t.length).sum();
+            int bwdCount = bwdTargets.stream().mapToInt(t -> t.length).sum();
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(n);
+            data.writeInt(fwdCount);
+            data.writeInt(bwdCount);
+            for (double[] c : coords)
+                data.writeFloat((float) c[0]);
+            for (double[] c : coords)
+                data.writeFloat((float) c[1]);
+            writeGraph(data, fwdTargets, fwdWeights);
+            writeGraph(data, bwdTargets, bwdWeights);
+        }
+    }
+
+    // CSR layout: first[n + 1], target[m], duration[m], distance[m]
+    private void writeGraph(DataOutputStream data, List<int[]> targets, List<double[][]> weights) throws IOException {
+        int offset = 0;
+        data.writeInt(0);
+        for (int[] t : targets) {
+            offset += t.length;
+            data.writeInt(offset);
+        }
+        for (int[] t : targets)
+            for (int target : t)
+                data.writeInt(target);
+        for (double[][] w : weights)
+            for (double[] edge : w)
+                data.writeFloat((float) edge[0]);
+        for (double[][] w : weights)
+            for (double[] edge : w)
+                data.writeFloat((float) edge[1]);
+    }
+
+    private void contract(List<int[]> fwdTargets, List<double[][]> fwdWeights,
+            List<int[]> bwdTargets, List<double[][]> bwdWeights) {
+        int n = coords.size();
+        int[] deletedNeighbours = new int[n];
+        PriorityQueue<int[]> queue = new PriorityQueue<>(Comparator.comparingInt((int[] e) -> e[0]));
+        for (int v = 0; v < n; v++)
+            queue.add(new int[] { priority(v, deletedNeighbours), v });
+
+        while (!queue.isEmpty()) {
+            int[] top = queue.poll();
+            int v = top[1];
+
+            // Lazy update: re-evaluate and requeue if v is no longer the cheapest to contract
+            int current = priority(v, deletedNeighbours);
+            if (!queue.isEmpty() && current > queue.peek()[0]) {
+                queue.add(new int[] { current, v });
+                continue;
+            }
+
+            // Every remaining neighbour is contracted later, i.e. ranks higher
+            fwdTargets.set(v, keys(out.get(v)));
+            fwdWeights.set(v, values(out.get(v)));
+            bwdTargets.set(v, keys(in.get(v)));
+            bwdWeights.set(v, values(in.get(v)));
+
+            addShortcuts(v, false);
+
+            for (int w : out.get(v).keySet()) {
+                in.get(w).remove(v);
+                deletedNeighbours[w]++;
+            }
+            for (int u : in.get(v).keySet()) {
+                out.get(u).remove(v);
+                deletedNeighbours[u]++;
+            }
+            out.get(v).clear();
+            in.get(v).clear();
+        }
+    }
+
+    private int priority(int v, int[] deletedNeighbours) {
+        int shortcuts = addShortcuts(v, true);
+        return shortcuts - out.get(v).size() - in.get(v).size() + deletedNeighbours[v];
+    }
+
+    /**
+     * Shortcuts needed to bypass v; added to the graph unless {@code simulate}.
+     */
+    private int addShortcuts(int v, boolean simulate) {
+        Map<Integer, double[]> outgoing = out.get(v);
+        if (outgoing.isEmpty() || in.get(v).isEmpty())
+            return 0;
+
+        double maxOut = 0;
+        for (double[] e : outgoing.values())
+            maxOut = Math.max(maxOut, e[0]);
+
+        int count = 0;
+        List<Object[]> pending = simulate ? null : new ArrayList<>();
+        for (Map.Entry<Integer, double[]> incoming : in.get(v).entrySet()) {
+            int u = incoming.getKey();
+            double[] uv = incoming.getValue();
+            Map<Integer, Double> witness = witnessSearch(u, v, uv[0] + maxOut);
+
+            for (Map.Entry<Integer, double[]> edge : outgoing.entrySet()) {
+                int w = edge.getKey();
+                if (w == u)
+                    continue;
+                double[] vw = edge.getValue();
+                double via = uv[0] + vw[0];
+                Double alt = witness.get(w);
+                if (alt != null && alt <= via)
+                    continue;
+                count++;
+                if (!simulate)
+                    pending.add(new Object[] { u, w, via, uv[1] + vw[1] });
+            }
+        }
+
+        if (!simulate) {
+            for (Object[] s : pending)
+                addEdge((Integer) s[0], (Integer) s[1], (Double) s[2], (Double) s[3]);
+        }
+        return count;
+    }
+
+    // Bounded Dijkstra from u that ignores v
+    private Map<Integer, Double> witnessSearch(int u, int v, double limit) {
+        Map<Integer, Double> dist = new HashMap<>();
+        PriorityQueue<double[]> queue = new PriorityQueue<>(Comparator.comparingDouble((double[] e) -> e[0]));
+        dist.put(u, 0.0);
+        queue.add(new double[] { 0, u });
+        int settled = 0;
+
+        while (!queue.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+            double[] top = queue.poll();
+            int x = (int) top[1];
+            if (top[0] > dist.get(x))
+                continue;
+            if (top[0] > limit)
+                break;
+            settled++;
+            for (Map.Entry<Integer, double[]> e : out.get(x).entrySet()) {
+                int y = e.getKey();
+                if (y == v)
+                    continue;
+                double d = top[0] + e.getValue()[0];
+                Double known = dist.get(y);
+                if (known == null || d < known) {
+                    dist.put(y, d);
+                    queue.add(new double[] { d, y });
+                }
+            }
+        }
+        return dist;
+    }
+
+    private static int[] keys(Map<Integer, double[]> edges) {
+        return edges.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static double[][] values(Map<Integer, double[]> edges) {
+        double[][] out = new double[edges.size()][];
+        int k = 0;
+        for (int key : keys(edges))
+            out[k++] = edges.get(key).clone();
+        return out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: ContractionHierarchyBuilder <nodes.csv> <edges.csv> <output.ch>");
+            System.exit(1);
+        }
+        ContractionHierarchyBuilder builder = new ContractionHierarchyBuilder();
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(args[0]))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+                String[] f = line.split(",");
+                builder.addNode(Double.parseDouble(f[0].trim()), Double.parseDouble(f[1].trim()));
+            }
+        }
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(args[1]))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+                String[] f = line.split(",");
+                builder.addEdge(Integer.parseInt(f[0].trim()), Integer.parseInt(f[1].trim()),
+                        Double.parseDouble(f[2].trim()), Double.parseDouble(f[3].trim()));
+            }
+        }
+        builder.write(Path.of(args[2]));
+        System.out.println("✅ Wrote contraction hierarchy with " + builder.coords.size() + " nodes to " + args[2]);
+    }
+}
@@ -0,0 +1,86 @@
+package com.itinera.backend.algorithm;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Exact bitmask dynamic programming (Held-Karp), O(n² · 2ⁿ) time and O(n · 2ⁿ) memory.
+ * Only meant for small days — the engine decides the cut-off. Has no partial answer to give,
+ * so an interrupted search throws {@link CancellationException}.
+ */
+public class HeldKarpSolver implements RouteSolver {
+
+    @Override
+    public Route solve(double[] cost, int size) {
+        int n = size - 1;
+        if (n == 0)
+            return new Route(new int[0], 0, 0);
+
+        int full = 1 << n;
+        // dp[mask * n + k] = cheapest path hotel → (all of mask) ending at place k
+        double[] dp = new double[full * n];
+        int[] parent = new int[full * n];
+        Arrays.fill(dp, Double.POSITIVE_INFINITY);
+
+        for (int k = 0; k < n; k++) {
+            dp[(1 << k) * n + k] = cost[k + 1];
+            parent[(1 << k) * n + k] = -1;
+        }
+
+        long explored = 0;
+        for (int mask = 1; mask < full; mask++) {
+            if ((mask & 0xFF) == 0 && Thread.currentThread().isInterrupted())
+                throw new CancellationException("Route search cancelled");
+            for (int k = 0; k < n; k++) {
+                if ((mask & (1 << k)) == 0)
+                    continue;
+                double val = dp[mask * n + k];
+                if (val == Double.POSITIVE_INFINITY)
+                    continue;
+
+                int row = (k + 1) * size;
+                for (int j = 0; j < n; j++) {
+                    if ((mask & (1 << j)) != 0)
+                        continue;
+                    int state = (mask | (1 << j)) * n + j;
+                    double cand = val + cost[row + j + 1];
+                    explored++;
+                    if (cand < dp[state]) {
+                        dp[state] = cand;
+                        parent[state] = k;
+                    }
+                }
+            }
+        }
+
+        // Close the tour back at the hotel
+        int last = -1;
+        double best = Double.POSITIVE_INFINITY;
+        int base = (full - 1) * n;
+        for (int k = 0; k < n; k++) {
+            double total = dp[base + k] + cost[(k + 1) * size];
+            if (total < best) {
+                best = total;
+                last = k;
+            }
+        }
+
+        if (last < 0) {
+            // Every tour is unreachable (OSRM returned nulls) — keep the input order
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++)
+                order[i] = i + 1;
+            return new Route(order, best, explored);
+        }
+
+        int[] order = new int[n];
+        int mask = full - 1;
+        for (int pos = n - 1; pos >= 0; pos--) {
+            order[pos] = last + 1;
+            int prev = parent[mask * n + last];
+            mask &= ~(1 << last);
+            last = prev;
+        }
+        return new Route(order, best, explored);
+    }
+}
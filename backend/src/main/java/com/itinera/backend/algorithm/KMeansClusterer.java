@@ -0,0 +1,230 @@
+package com.itinera.backend.algorithm;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * K-Means over flat lat/lon arrays with deterministic K-Means++ seeding.
+ *
+ * Coordinates are projected once onto a local equirectangular plane (km), so assignment is a
+ * squared Euclidean distance instead of trig-heavy haversine. Cluster sums are updated
+ * incrementally as points move, and every buffer is allocated up front: iterations allocate
+ * nothing. Clusters never end up empty — an emptied cluster takes the point farthest from its
+ * centroid in the largest cluster — and each point belongs to exactly one cluster.
+ *
+ * Points may carry weights, so a large place set can be clustered as grid cells (see
+ * {@link SpatialIndex#cells}) weighted by how many places each holds.
+ */
+public class KMeansClusterer {
+
+    private static final double EARTH_RADIUS_KM = 6371;
+
+    private final int maxIterations;
+
+    public KMeansClusterer(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    public static final class Clustering {
+        public final int[] assignment; // cluster index per input point
+        public final int iterations;
+
+        public Clustering(int[] assignment, int iterations) {
+            this.assignment = assignment;
+            this.iterations = iterations;
+        }
+    }
+
+    public Clustering cluster(double[] lat, double[] lon, int k, long seed) {
+        return cluster(lat, lon, null, k, seed);
+    }
+
+    /**
+     * @param weight mass of each point, or null for all ones
+     */
+    public Clustering cluster(double[] lat, double[] lon, double[] weight, int k, long seed) {
+        int n = lat.length;
+        if (k <= 0 || k > n)
+            throw new IllegalArgumentException("k must be between 1 and the number of points");
+
+        double[] x = new double[n];
+        double[] y = new double[n];
+        project(lat, lon, x, y);
+
+        double[] cx = new double[k];
+        double[] cy = new double[k];
+        double[] w = weight;
+        if (w == null) {
+            w = new double[n];
+            Arrays.fill(w, 1);
+        }
+        seed(x, y, w, cx, cy, new Random(seed));
+
+        int[] assignment = new int[n];
+        double[] sumX = new double[k];
+        double[] sumY = new double[k];
+        double[] mass = new double[k];
+        int[] count = new int[k];
+
+        for (int i = 0; i < n; i++) {
+            int c = nearest(x[i], y[i], cx, cy);
+            assignment[i] = c;
+            sumX[c] += w[i] * x[i];
+            sumY[c] += w[i] * y[i];
+            mass[c] += w[i];
+            count[c]++;
+        }
+        repairEmpty(x, y, w, assignment, sumX, sumY, mass, count, cx, cy);
+        updateCentroids(sumX, sumY, mass, cx, cy);
+
+        int iteration = 1;
+        boolean changed = true;
+        while (changed && iteration < maxIterations) {
+            iteration++;
+            changed = false;
+            for (int i = 0; i < n; i++) {
+                int from = assignment[i];
+                int to = nearest(x[i], y[i], cx, cy);
+                if (to == from)
+                    continue;
+                assignment[i] = to;
+                sumX[from] -= w[i] * x[i];
+                sumY[from] -= w[i] * y[i];
+                mass[from] -= w[i];
+                count[from]--;
+                sumX[to] += w[i] * x[i];
+                sumY[to] += w[i] * y[i];
+                mass[to] += w[i];
+                count[to]++;
+                changed = true;
+            }
+            repairEmpty(x, y, w, assignment, sumX, sumY, mass, count, cx, cy);
+            updateCentroids(sumX, sumY, mass, cx, cy);
+        }
+        return new Clustering(assignment, iteration);
+    }
+
+    /**
+     * Equirectangular projection around the mean latitude, in km. Accurate to well under a
+     * percent across a city, which is all nearest-centroid decisions need.
+     */
+    public static void project(double[] lat, double[] lon, double[] x, double[] y) {
+        int n = lat.length;
+        double meanLat = 0;
+        for (double v : lat)
+            meanLat += v;
+        meanLat /= n;
+        double kx = EARTH_RADIUS_KM * Math.toRadians(1) * Math.cos(Math.toRadians(meanLat));
+        double ky = EARTH_RADIUS_KM * Math.toRadians(1);
+        for (int i = 0; i < n; i++) {
+            x[i] = lon[i] * kx;
+            y[i] = lat[i] * ky;
+        }
+    }
+
+    // K-Means++: each next centre is drawn with probability proportional to weight × D² from the chosen ones
+    private void seed(double[] x, double[] y, double[] w, double[] cx, double[] cy, Random random) {
+        int n = x.length;
+        int k = cx.length;
+        double[] d2 = new double[n];
+        boolean[] chosen = new boolean[n];
+
+        int first = random.nextInt(n);
+        chosen[first] = true;
+        cx[0] = x[first];
+        cy[0] = y[first];
+        for (int i = 0; i < n; i++)
+            d2[i] = w[i] * sq(x[i] - cx[0], y[i] - cy[0]);
+
+        for (int c = 1; c < k; c++) {
+            double total = 0;
+            for (int i = 0; i < n; i++)
+                total += d2[i];
+
+            int pick = -1;
+            if (total > 0) {
+                double r = random.nextDouble() * total;
+                for (int i = 0; i < n && pick < 0; i++) {
+                    r -= d2[i];
+                    if (r <= 0 && d2[i] > 0)
+                        pick = i;
+                }
+            }
+            if (pick < 0) {
+                // Remaining points coincide with chosen centres: take the next unused index
+                for (int i = 0; i < n && pick < 0; i++)
+                    if (!chosen[i])
+                        pick = i;
+            }
+
+            chosen[pick] = true;
+            cx[c] = x[pick];
+            cy[c] = y[pick];
+            for (int i = 0; i < n; i++)
+                d2[i] = Math.min(d2[i], w[i] * sq(x[i] - cx[c], y[i] - cy[c]));
+        }
+    }
+
+    private void repairEmpty(double[] x, double[] y, double[] w, int[] assignment, double[] sumX, double[] sumY,
+            double[] mass, int[] count, double[] cx, double[] cy) {
+        for (int empty = 0; empty < count.length; empty++) {
+            if (count[empty] > 0)
+                continue;
+
+            int largest = 0;
+            for (int c = 1; c < count.length; c++)
+                if (count[c] > count[largest])
+                    largest = c;
+
+            double mx = sumX[largest] / mass[largest];
+            double my = sumY[largest] / mass[largest];
+            int farthest = -1;
+            double best = -1;
+            for (int i = 0; i < assignment.length; i++) {
+                if (assignment[i] != largest)
+                    continue;
+                double d = sq(x[i] - mx, y[i] - my);
+                if (d > best) {
+                    best = d;
+                    farthest = i;
+                }
+            }
+
+            assignment[farthest] = empty;
+            sumX[largest] -= w[farthest] * x[farthest];
+            sumY[largest] -= w[farthest] * y[farthest];
+            mass[largest] -= w[farthest];
+            count[largest]--;
+            sumX[empty] = w[farthest] * x[farthest];
+            sumY[empty] = w[farthest] * y[farthest];
+            mass[empty] = w[farthest];
+            count[empty] = 1;
+            cx[empty] = x[farthest];
+            cy[empty] = y[farthest];
+        }
+    }
+
+    private void updateCentroids(double[] sumX, double[] sumY, double[] mass, double[] cx, double[] cy) {
+        for (int c = 0; c < mass.length; c++) {
+            cx[c] = sumX[c] / mass[c];
+            cy[c] = sumY[c] / mass[c];
+        }
+    }
+
+    private static int nearest(double px, double py, double[] cx, double[] cy) {
+        int best = 0;
+        double bestD = sq(px - cx[0], py - cy[0]);
+        for (int c = 1; c < cx.length; c++) {
+            double d = sq(px - cx[c], py - cy[c]);
+            if (d < bestD) {
+                bestD = d;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static double sq(double dx, double dy) {
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,181 @@
+package com.itinera.backend.algorithm;
+
+/**
+ * Nearest-neighbour construction followed by 2-opt and Or-opt improvement.
+ * Works on asymmetric costs: segment reversals are priced with forward/backward prefix sums,
+ * so every candidate move is evaluated in O(1). Stops improving (but still returns a valid tour)
+ * once the thread is interrupted.
+ */
+public class LocalSearchSolver implements RouteSolver {
+
+    private static final double EPS = 1e-9;
+    private static final int MAX_PASSES = 1000;
+
+    @Override
+    public Route solve(double[] cost, int size) {
+        int n = size - 1;
+        if (n == 0)
+            return new Route(new int[0], 0, 0);
+
+        // tour[0] and tour[n + 1] are the hotel
+        int[] tour = new int[n + 2];
+        boolean[] used = new boolean[size];
+        int current = 0;
+        for (int pos = 1; pos <= n; pos++) {
+            int next = -1;
+            double best = Double.POSITIVE_INFINITY;
+            for (int j = 1; j < size; j++) {
+                if (!used[j] && (next < 0 || cost[current * size + j] < best)) {
+                    best = cost[current * size + j];
+                    next = j;
+                }
+            }
+            used[next] = true;
+            tour[pos] = next;
+            current = next;
+        }
+        return optimize(cost, size, tour);
+    }
+
+    /**
+     * Warm start: improves {@code initial} (places in visiting order) instead of building a tour
+     * from scratch. Places missing from {@code initial} are first inserted where they cost least,
+     * so an edited day only pays for the moves its edit makes worthwhile.
+     */
+    public Route improve(double[] cost, int size, int[] initial) {
+        int n = size - 1;
+        if (n == 0)
+            return new Route(new int[0], 0, 0);
+
+        int[] tour = new int[n + 2];
+        boolean[] used = new boolean[size];
+        int length = 0;
+        for (int node : initial) {
+            if (node < 1 || node >= size || used[node])
+                throw new IllegalArgumentException("Invalid warm-start order");
+            used[node] = true;
+            tour[++length] = node;
+        }
+        for (int node = 1; node < size; node++) {
+            if (!used[node])
+                length = insertCheapest(cost, size, tour, length, node);
+        }
+        return optimize(cost, size, tour);
+    }
+
+    // tour[1..length] holds the partial tour; the hotel closes it at both ends
+    private int insertCheapest(double[] cost, int size, int[] tour, int length, int node) {
+        int bestPos = 1;
+        double best = Double.POSITIVE_INFINITY;
+        for (int p = 0; p <= length; p++) {
+            int a = tour[p], b = p == length ? 0 : tour[p + 1];
+            double delta = cost[a * size + node] + cost[node * size + b] - cost[a * size + b];
+            if (delta < best) {
+                best = delta;
+                bestPos = p + 1;
+            }
+        }
+        System.arraycopy(tour, bestPos, tour, bestPos + 1, length - bestPos + 1);
+        tour[bestPos] = node;
+        return length + 1;
+    }
+
+    // 2-opt / Or-opt until no move helps; tour[0] and tour[n + 1] are the hotel
+    private Route optimize(double[] cost, int size, int[] tour) {
+        int n = size - 1;
+        double[] fwd = new double[n + 2];
+        double[] bwd = new double[n + 2];
+        int[] buffer = new int[n + 2];
+        long explored = 0;
+
+        for (int pass = 0; pass < MAX_PASSES && !Thread.currentThread().isInterrupted(); pass++) {
+            prefixSums(cost, size, tour, fwd, bwd);
+            long[] counter = { 0 };
+            boolean improved = twoOpt(cost, size, tour, fwd, bwd, counter)
+                    || orOpt(cost, size, tour, buffer, counter);
+            explored += counter[0];
+            if (!improved)
+                break;
+        }
+
+        int[] order = new int[n];
+        System.arraycopy(tour, 1, order, 0, n);
+        return new Route(order, Route.tourCost(cost, size, order), explored);
+    }
+
+    // fwd[i] = cost of tour[0..i] walked forward, bwd[i] = same edges walked backward
+    private void prefixSums(double[] cost, int size, int[] tour, double[] fwd, double[] bwd) {
+        fwd[0] = 0;
+        bwd[0] = 0;
+        for (int i = 1; i < tour.length; i++) {
+            fwd[i] = fwd[i - 1] + cost[tour[i - 1] * size + tour[i]];
+            bwd[i] = bwd[i - 1] + cost[tour[i] * size + tour[i - 1]];
+        }
+    }
+
+    /**
+     * First-improvement 2-opt: reverse tour[i..j].
+     */
+    private boolean twoOpt(double[] cost, int size, int[] tour, double[] fwd, double[] bwd, long[] counter) {
+        int last = tour.length - 2;
+        for (int i = 1; i < last; i++) {
+            for (int j = i + 1; j <= last; j++) {
+                counter[0]++;
+                int a = tour[i - 1], b = tour[i], c = tour[j], d = tour[j + 1];
+                double before = cost[a * size + b] + (fwd[j] - fwd[i]) + cost[c * size + d];
+                double after = cost[a * size + c] + (bwd[j] - bwd[i]) + cost[b * size + d];
+                if (after < before - EPS) {
+                    for (int lo = i, hi = j; lo < hi; lo++, hi--) {
+                        int tmp = tour[lo];
+                        tour[lo] = tour[hi];
+                        tour[hi] = tmp;
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * First-improvement Or-opt: move a chain of 1–3 places elsewhere in the tour.
+     */
+    private boolean orOpt(double[] cost, int size, int[] tour, int[] buffer, long[] counter) {
+        int last = tour.length - 2;
+        for (int len = 1; len <= 3 && len < last; len++) {
+            for (int i = 1; i + len - 1 <= last; i++) {
+                int end = i + len - 1;
+                int prev = tour[i - 1], first = tour[i], tail = tour[end], next = tour[end + 1];
+                double removeGain = cost[prev * size + first] + cost[tail * size + next] - cost[prev * size + next];
+
+                for (int p = 0; p <= last; p++) {
+                    if (p >= i - 1 && p <= end)
+                        continue;
+                    counter[0]++;
+                    int a = tour[p], b = tour[p + 1];
+                    double insertCost = cost[a * size + first] + cost[tail * size + b] - cost[a * size + b];
+                    if (insertCost < removeGain - EPS) {
+                        moveSegment(tour, buffer, i, len, p);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Moves tour[i..i+len-1] so that it sits right after the node currently at position p
+    private void moveSegment(int[] tour, int[] buffer, int i, int len, int p) {
+        int w = 0;
+        for (int k = 0; k < tour.length; k++) {
+            if (k >= i && k < i + len)
+                continue;
+            buffer[w++] = tour[k];
+            if (k == p) {
+                for (int s = 0; s < len; s++)
+                    buffer[w++] = tour[i + s];
+            }
+        }
+        System.arraycopy(buffer, 0, tour, 0, tour.length);
+    }
+}
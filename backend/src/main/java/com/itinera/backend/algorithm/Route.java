@@ -0,0 +1,30 @@
+package com.itinera.backend.algorithm;
+
+/**
+ * Result of a route search over a flat cost matrix.
+ * Node 0 is always the hotel; {@code order} holds the places (1..n) in visiting order.
+ */
+public final class Route {
+    public final int[] order;
+    public final double cost;
+    public final long explored; // states / nodes / moves evaluated by the solver
+
+    public Route(int[] order, double cost, long explored) {
+        this.order = order;
+        this.cost = cost;
+        this.explored = explored;
+    }
+
+    /**
+     * Cost of the closed tour hotel → order... → hotel over a row-major size×size matrix.
+     */
+    public static double tourCost(double[] cost, int size, int[] order) {
+        double total = 0;
+        int prev = 0;
+        for (int node : order) {
+            total += cost[prev * size + node];
+            prev = node;
+        }
+        return total + cost[prev * size];
+    }
+}
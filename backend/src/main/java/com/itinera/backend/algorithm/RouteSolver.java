@@ -0,0 +1,11 @@
+package com.itinera.backend.algorithm;
+
+/**
+ * Solves the closed tour hotel → every place → hotel.
+ *
+ * {@code cost} is a row-major {@code size × size} matrix where {@code cost[i * size + j]}
+ * is the cost of travelling from node i to node j, node 0 being the hotel.
+ */
+public interface RouteSolver {
+    Route solve(double[] cost, int size);
+}
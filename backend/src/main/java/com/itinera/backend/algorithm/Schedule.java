@@ -0,0 +1,20 @@
+package com.itinera.backend.algorithm;
+
+/**
+ * Timetable for one route, in minutes since midnight. Index k refers to the k-th stop of the route.
+ */
+public final class Schedule {
+    public final int[] arrival;
+    public final int[] departure;
+    public final boolean[] late; // visit could not start before closing time minus explore time
+    public final int returnTime; // back at the hotel
+    public final boolean feasible;
+
+    public Schedule(int[] arrival, int[] departure, boolean[] late, int returnTime, boolean feasible) {
+        this.arrival = arrival;
+        this.departure = departure;
+        this.late = late;
+        this.returnTime = returnTime;
+        this.feasible = feasible;
+    }
+}
@@ -0,0 +1,47 @@
+package com.itinera.backend.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Lookup tables shared by the depth-first solvers.
+ */
+final class SearchTables {
+
+    private SearchTables() {
+    }
+
+    /**
+     * Cheapest edge into each node; summed over the unvisited nodes it is an admissible lower bound.
+     */
+    static double[] minIncoming(double[] cost, int size) {
+        double[] minIn = new double[size];
+        for (int j = 0; j < size; j++) {
+            double min = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                if (i != j)
+                    min = Math.min(min, cost[i * size + j]);
+            }
+            minIn[j] = min;
+        }
+        return minIn;
+    }
+
+    /**
+     * For each node, the places (1..size-1) sorted by edge cost from that node, cheapest first.
+     */
+    static int[][] neighboursByCost(double[] cost, int size) {
+        int[][] neighbours = new int[size][];
+        Integer[] boxed = new Integer[size - 1];
+        for (int i = 0; i < size; i++) {
+            for (int j = 1; j < size; j++)
+                boxed[j - 1] = j;
+            final int from = i;
+            Arrays.sort(boxed, (a, b) -> Double.compare(cost[from * size + a], cost[from * size + b]));
+            int[] row = new int[size - 1];
+            for (int k = 0; k < row.length; k++)
+                row[k] = boxed[k];
+            neighbours[i] = row;
+        }
+        return neighbours;
+    }
+}
@@ -0,0 +1,157 @@
+package com.itinera.backend.algorithm;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Static 2-d tree over points projected onto a local plane (km), for radius queries over a
+ * city's worth of places.
+ *
+ * Built once in O(n log n) by median splits over an index permutation; nothing is boxed and
+ * queries only descend into subtrees whose splitting line is within reach, so a radius query
+ * costs about O(log n + matches) instead of a scan. Points can also be snapped to a square grid,
+ * which lets clustering iterate over cells rather than over every point.
+ */
+public final class SpatialIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371;
+
+    private final double kx;
+    private final double ky;
+    private final double[] x;
+    private final double[] y;
+    private final int[] tree; // point indexes; the node of [lo, hi) is at the middle, split on x at even depths
+
+    public SpatialIndex(double[] lat, double[] lon) {
+        int n = lat.length;
+        double meanLat = 0;
+        for (double v : lat)
+            meanLat += v;
+        meanLat = n == 0 ? 0 : meanLat / n;
+        this.kx = EARTH_RADIUS_KM * Math.toRadians(1) * Math.cos(Math.toRadians(meanLat));
+        this.ky = EARTH_RADIUS_KM * Math.toRadians(1);
+
+        this.x = new double[n];
+        this.y = new double[n];
+        this.tree = new int[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = lon[i] * kx;
+            y[i] = lat[i] * ky;
+            tree[i] = i;
+        }
+        build(0, n, 0);
+    }
+
+    public int size() {
+        return tree.length;
+    }
+
+    /** Indexes of the points within {@code radiusKm} of the given coordinate, ascending. */
+    public int[] within(double lat, double lon, double radiusKm) {
+        int[] out = new int[Math.min(tree.length, 16)];
+        int[] count = { 0 };
+        out = within(0, tree.length, 0, lon * kx, lat * ky, radiusKm * radiusKm, out, count);
+        int[] result = Arrays.copyOf(out, count[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /** Points grouped by square grid cell, in order of each cell's first point. */
+    public static final class Cells {
+        public final int[] cellOf; // cell index per point
+        public final double[] lat; // mean coordinate of each cell's points
+        public final double[] lon;
+        public final double[] weight; // points per cell
+
+        Cells(int[] cellOf, double[] lat, double[] lon, double[] weight) {
+            this.cellOf = cellOf;
+            this.lat = lat;
+            this.lon = lon;
+            this.weight = weight;
+        }
+    }
+
+    public Cells cells(double cellKm) {
+        int n = tree.length;
+        int[] cellOf = new int[n];
+        Map<Long, Integer> ids = new HashMap<>();
+        double[] sumX = new double[n];
+        double[] sumY = new double[n];
+        double[] weight = new double[n];
+        for (int i = 0; i < n; i++) {
+            long cx = (long) Math.floor(x[i] / cellKm);
+            long cy = (long) Math.floor(y[i] / cellKm);
+            int cell = ids.computeIfAbsent((cx << 32) ^ (cy & 0xFFFFFFFFL), key -> ids.size());
+            cellOf[i] = cell;
+            sumX[cell] += x[i];
+            sumY[cell] += y[i];
+            weight[cell]++;
+        }
+
+        int cells = ids.size();
+        double[] lat = new double[cells];
+        double[] lon = new double[cells];
+        for (int c = 0; c < cells; c++) {
+            lon[c] = sumX[c] / weight[c] / kx;
+            lat[c] = sumY[c] / weight[c] / ky;
+        }
+        return new Cells(cellOf, lat, lon, Arrays.copyOf(weight, cells));
+    }
+
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1)
+            return;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, depth % 2 == 0 ? x : y);
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    // Quickselect: afterwards tree[k] holds the median by coord, smaller to its left, larger to its right
+    private void select(int lo, int hi, int k, double[] coord) {
+        while (lo < hi) {
+            double pivot = coord[tree[(lo + hi) >>> 1]];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (coord[tree[i]] < pivot)
+                    i++;
+                while (coord[tree[j]] > pivot)
+                    j--;
+                if (i <= j) {
+                    int tmp = tree[i];
+                    tree[i++] = tree[j];
+                    tree[j--] = tmp;
+                }
+            }
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    private int[] within(int lo, int hi, int depth, double px, double py, double r2, int[] out, int[] count) {
+        if (lo >= hi)
+            return out;
+        int mid = (lo + hi) >>> 1;
+        int p = tree[mid];
+        if (sq(x[p] - px, y[p] - py) <= r2) {
+            if (count[0] == out.length)
+                out = Arrays.copyOf(out, out.length * 2);
+            out[count[0]++] = p;
+        }
+        double delta = depth % 2 == 0 ? px - x[p] : py - y[p];
+        if (delta <= 0 || delta * delta <= r2)
+            out = within(lo, mid, depth + 1, px, py, r2, out, count);
+        if (delta >= 0 || delta * delta <= r2)
+            out = within(mid + 1, hi, depth + 1, px, py, r2, out, count);
+        return out;
+    }
+
+    private static double sq(double dx, double dy) {
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,117 @@
+package com.itinera.backend.algorithm;
+
+/**
+ * TSP with time windows: depth-first search that carries the arrival clock along the path.
+ *
+ * A partial route is pruned as soon as the next visit misses its window, some unvisited place
+ * can no longer be reached before it closes, or the cost lower bound cannot beat the incumbent.
+ * The unconstrained route from the seed solver is used as the incumbent when it happens to be
+ * feasible, and is returned unchanged when no feasible route exists (or the node budget runs out
+ * first) so the caller can still report which stops run late.
+ */
+public class TimeWindowSolver implements RouteSolver {
+
+    private final TimeWindows windows;
+    private final RouteSolver seed;
+    private final long nodeBudget;
+
+    public TimeWindowSolver(TimeWindows windows, RouteSolver seed, long nodeBudget) {
+        this.windows = windows;
+        this.seed = seed;
+        this.nodeBudget = nodeBudget;
+    }
+
+    @Override
+    public Route solve(double[] cost, int size) {
+        Route unconstrained = seed.solve(cost, size);
+        if (size <= 1)
+            return unconstrained;
+
+        boolean seedFeasible = windows.simulate(unconstrained.order).feasible;
+        Search search = new Search(cost, size, windows, nodeBudget);
+        if (seedFeasible) {
+            search.bestCost = unconstrained.cost;
+            search.bestOrder = unconstrained.order.clone();
+        }
+        search.run();
+
+        long explored = unconstrained.explored + search.explored;
+        if (search.bestOrder == null)
+            return new Route(unconstrained.order, unconstrained.cost, explored);
+        return new Route(search.bestOrder, search.bestCost, explored);
+    }
+
+    private static final class Search {
+        private final double[] cost;
+        private final int size;
+        private final TimeWindows windows;
+        private final long budget;
+
+        private final double[] minIn;
+        private final int[][] neighbours;
+        private final boolean[] visited;
+        private final int[] path;
+
+        private double bestCost = Double.POSITIVE_INFINITY;
+        private int[] bestOrder;
+        private long explored;
+
+        Search(double[] cost, int size, TimeWindows windows, long budget) {
+            this.cost = cost;
+            this.size = size;
+            this.windows = windows;
+            this.budget = budget;
+            this.visited = new boolean[size];
+            this.path = new int[size - 1];
+
+            this.minIn = SearchTables.minIncoming(cost, size);
+            this.neighbours = SearchTables.neighboursByCost(cost, size);
+        }
+
+        void run() {
+            double remaining = 0;
+            for (int j = 0; j < size; j++)
+                remaining += minIn[j];
+            visited[0] = true;
+            if (windows.canReachAll(0, windows.dayStart(), visited))
+                dfs(0, 0, windows.dayStart(), 0, remaining);
+        }
+
+        private void dfs(int current, int depth, double clock, double partial, double remaining) {
+            // Out of budget or cancelled: keep the incumbent. explored stops moving, so every
+            // pending frame returns through this check as well.
+            if (explored >= budget || ((explored & 0x3FF) == 0 && Thread.currentThread().isInterrupted()))
+                return;
+            explored++;
+
+            if (depth == path.length) {
+                double total = partial + cost[current * size];
+                if (total < bestCost) {
+                    bestCost = total;
+                    bestOrder = path.clone();
+                }
+                return;
+            }
+
+            for (int next : neighbours[current]) {
+                if (visited[next])
+                    continue;
+                double step = partial + cost[current * size + next];
+                double rest = remaining - minIn[next];
+                if (step + rest >= bestCost)
+                    continue;
+
+                double leave = windows.depart(next, clock + windows.travel(current, next));
+                if (Double.isNaN(leave))
+                    continue;
+
+                visited[next] = true;
+                if (windows.canReachAll(next, leave, visited)) {
+                    path[depth] = next;
+                    dfs(next, depth + 1, leave, step, rest);
+                }
+                visited[next] = false;
+            }
+        }
+    }
+}
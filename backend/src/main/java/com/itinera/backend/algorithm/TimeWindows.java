@@ -0,0 +1,103 @@
+package com.itinera.backend.algorithm;
+
+/**
+ * Opening hours, visit durations and travel times for one day, all in minutes.
+ * Node 0 is the hotel and is never constrained.
+ *
+ * A place whose open and close times are equal (usually 0/0 from missing data) is treated as
+ * always open; a close time before the open time is read as closing after midnight.
+ */
+public final class TimeWindows {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final double[] travelMinutes; // row-major size×size
+    private final int size;
+    private final int[] open;
+    private final int[] latestStart; // last minute a visit can begin and still finish before closing
+    private final int[] service;
+    private final int dayStart;
+
+    public TimeWindows(double[] travelMinutes, int size, int[] open, int[] close, int[] service, int dayStart) {
+        this.travelMinutes = travelMinutes;
+        this.size = size;
+        this.service = service;
+        this.dayStart = dayStart;
+        this.open = new int[size];
+        this.latestStart = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || open[i] == close[i]) {
+                this.open[i] = 0;
+                this.latestStart[i] = Integer.MAX_VALUE / 2;
+                continue;
+            }
+            int closing = close[i] < open[i] ? close[i] + MINUTES_PER_DAY : close[i];
+            this.open[i] = open[i];
+            this.latestStart[i] = closing - service[i];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int dayStart() {
+        return dayStart;
+    }
+
+    double travel(int from, int to) {
+        return travelMinutes[from * size + to];
+    }
+
+    /**
+     * Minute at which we leave {@code node} when arriving there at {@code arrival}, or NaN if the
+     * visit can no longer fit inside the opening hours.
+     */
+    double depart(int node, double arrival) {
+        double start = Math.max(arrival, open[node]);
+        return start > latestStart[node] ? Double.NaN : start + service[node];
+    }
+
+    /**
+     * True if every unvisited place can still be reached directly from {@code current} in time.
+     * Assuming travel times roughly obey the triangle inequality, a place that is already too far
+     * away now will only be later via any detour, so the partial route can be dropped.
+     */
+    boolean canReachAll(int current, double clock, boolean[] visited) {
+        for (int j = 1; j < size; j++) {
+            if (!visited[j] && Math.max(clock + travel(current, j), open[j]) > latestStart[j])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Walks the route with the arrival clock, waiting for places that are not open yet.
+     * Late visits are still scheduled (and flagged) so the caller always gets a full timetable.
+     */
+    public Schedule simulate(int[] order) {
+        int n = order.length;
+        int[] arrival = new int[n];
+        int[] departure = new int[n];
+        boolean[] late = new boolean[n];
+        boolean feasible = true;
+
+        double clock = dayStart;
+        int prev = 0;
+        for (int k = 0; k < n; k++) {
+            int node = order[k];
+            double arrive = clock + travel(prev, node);
+            double start = Math.max(arrive, open[node]);
+            late[k] = start > latestStart[node];
+            feasible &= !late[k];
+
+            arrival[k] = (int) Math.round(arrive);
+            clock = start + service[node];
+            departure[k] = (int) Math.round(clock);
+            prev = node;
+        }
+        int back = (int) Math.round(clock + travel(prev, 0));
+        return new Schedule(arrival, departure, late, back, feasible);
+    }
+}
@@ -1,14 +1,32 @@
 package com.itinera.backend.api;
 
+import com.itinera.backend.model.DayPlan;
 import com.itinera.backend.model.Place;
 import com.itinera.backend.model.GenerateOrderRequest;
 import com.itinera.backend.model.Hotel;
+import com.itinera.backend.model.PlanEdit;
 import com.itinera.backend.service.AlgorithmService;
+import com.itinera.backend.service.PlanCache;
+
+import com.itinera.backend.model.TripPlan;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/algorithm")
@@ -17,22 +35,149 @@ public class AlgorithmController {
     @Autowired
     private AlgorithmService algorithmService;
 
+    @Autowired
+    private PlanCache planCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${itinera.batch.timeout-ms:600000}")
+    private long batchTimeoutMs;
+
+    /**
+     * Plans a trip. The same request under the same settings always gives the same plan, so the
+     * response is cached under its planId, which doubles as its ETag and can be fetched again
+     * from /plan/{planId}. Plans that fell back to estimated travel times are cached only briefly.
+     */
     @PostMapping("/generate")
-    public Map<String, Object> generateOrder(@RequestBody GenerateOrderRequest request) {
-        List<Place> places = request.getPlaces();
-        Hotel hotel = request.getHotel();
-        int days = request.getDays();
+    public ResponseEntity<String> generateOrder(@RequestBody GenerateOrderRequest request) throws JsonProcessingException {
+        String planKey = algorithmService.planKey(request);
+        String json = planCache.get(planKey);
+        if (json == null)
+            json = render(algorithmService.planTrip(request, planKey));
+        return planResponse(planKey, json);
+    }
+
+    /** A plan from /generate or /plan/{planId}/edit by id; 304 when the client's copy is current. */
+    @GetMapping("/plan/{planId}")
+    public ResponseEntity<String> getPlan(@PathVariable String planId, WebRequest webRequest) {
+        // Plans never change under an id, so a matching ETag needs no lookup
+        if (webRequest.checkNotModified(planId))
+            return null;
+        String json = planCache.get(planId);
+        if (json == null)
+            return ResponseEntity.status(404).body("{\"error\":\"No plan found for this planId\"}");
+        return planResponse(planId, json);
+    }
+
+    /**
+     * Adds, removes or pins (moves to a day) one place of a plan from /generate and returns the
+     * whole updated plan under a new planId; only the days the edit touches are re-solved. The old
+     * planId keeps naming the plan before the edit. 404 once the plan has expired, in which case
+     * the client posts the full trip to /generate again.
+     */
+    @PostMapping("/plan/{planId}/edit")
+    public ResponseEntity<String> editPlan(@PathVariable String planId, @RequestBody PlanEdit edit)
+            throws JsonProcessingException {
+        TripPlan plan;
+        try {
+            plan = algorithmService.editPlan(planId, edit);
+            if (plan == null && restore(planId))
+                plan = algorithmService.editPlan(planId, edit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(objectMapper.writeValueAsString(Map.of("error", e.getMessage())));
+        }
+        if (plan == null)
+            return ResponseEntity.status(404).body("{\"error\":\"No plan found for this planId\"}");
+
+        return planResponse(plan.getPlanId(), render(plan));
+    }
+
+    /**
+     * Plans many trips in one call. Results stream back as NDJSON, one line per trip in
+     * completion order, each tagged with the trip's index in the request.
+     */
+    @PostMapping(value = "/generate/batch", produces = "application/x-ndjson")
+    public ResponseEntity<ResponseBodyEmitter> generateBatch(@RequestBody List<GenerateOrderRequest> requests) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeoutMs);
+        List<CompletableFuture<TripPlan>> trips = algorithmService.planBatch(requests);
+
+        List<CompletableFuture<?>> lines = new ArrayList<>();
+        for (int i = 0; i < trips.size(); i++) {
+            int index = i;
+            lines.add(trips.get(i).handle((plan, error) -> {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("index", index);
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error;
+                    line.put("error", String.valueOf(cause.getMessage()));
+                } else {
+                    line.putAll(toResponse(plan));
+                }
+                try {
+                    emitter.send(objectMapper.writeValueAsString(line) + "\n", MediaType.TEXT_PLAIN);
+                } catch (IOException e) {
+                    // Client went away; remaining trips still finish but nobody reads them
+                    trips.forEach(trip -> trip.cancel(false));
+                }
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(lines.toArray(CompletableFuture[]::new)).whenComplete((done, error) -> emitter.complete());
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(emitter);
+    }
+
+    // Serializes a kept plan and caches it under its id, briefly if it rests on estimated travel times
+    private String render(TripPlan plan) throws JsonProcessingException {
+        String json = objectMapper.writeValueAsString(toResponse(plan));
+        planCache.put(plan.getPlanId(), json, plan.getSchedules().stream().anyMatch(DayPlan::isEstimated));
+        return json;
+    }
+
+    // Makes a cached plan this instance no longer holds editable again; false when it is gone everywhere
+    private boolean restore(String planId) throws JsonProcessingException {
+        String json = planCache.get(planId);
+        if (json == null)
+            return false;
+        JsonNode cached = objectMapper.readTree(json);
+        if (!cached.hasNonNull("hotel"))
+            return false;
+        Hotel hotel = objectMapper.treeToValue(cached.get("hotel"), Hotel.class);
+        List<DayPlan> schedules = objectMapper.convertValue(cached.get("schedules"), new TypeReference<>() {
+        });
+        algorithmService.restorePlan(planId, hotel, schedules);
+        return true;
+    }
+
+    private static ResponseEntity<String> planResponse(String planId, String json) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(planId)
+                .cacheControl(CacheControl.noCache())
+                .body(json);
+    }
 
-        List<List<Place>> clusters = algorithmService.clusterPlaces(places, days);
+    private static Map<String, Object> toResponse(TripPlan trip) {
         List<List<Place>> optimizedItineraries = new ArrayList<>();
 
-        for (List<Place> cluster : clusters) {
-            optimizedItineraries.add(algorithmService.optimizeDailyOrder(cluster, hotel));
+        for (DayPlan plan : trip.getSchedules()) {
+            optimizedItineraries.add(plan.getPlaces());
         }
 
         Map<String, Object> response = new HashMap<>();
-        response.put("clusters", clusters);
+        response.put("clusters", trip.getClusters());
         response.put("optimizedItineraries", optimizedItineraries);
+        response.put("schedules", trip.getSchedules());
+        if (trip.getPlanId() != null)
+            response.put("planId", trip.getPlanId());
+        if (trip.getHotel() != null)
+            response.put("hotel", trip.getHotel());
+        if (trip.getDropped() != null)
+            response.put("dropped", trip.getDropped());
         return response;
     }
 
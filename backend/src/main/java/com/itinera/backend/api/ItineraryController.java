@@ -4,7 +4,9 @@ import com.itinera.backend.model.ItineraryRequest;
 import com.itinera.backend.service.ItineraryService;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.web.bind.annotation.*;
 
@@ -19,9 +21,16 @@ public class ItineraryController {
     }
 
     @PostMapping("/generate")
-    public Map<String, String> generateItinerary(@RequestBody ItineraryRequest data, @RequestParam String city) {
-        String sessionId = itineraryService.generateItinerary(city, data);
-        return Map.of("sessionId", sessionId);
+    public CompletableFuture<Map<String, String>> generateItinerary(@RequestBody ItineraryRequest data,
+            @RequestParam String city) {
+        return itineraryService.generateItinerary(city, data)
+                .thenApply(sessionId -> Map.of("sessionId", sessionId));
+    }
+
+    // Same as /generate, but pushes tokens and finished day blocks as they are produced
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamItinerary(@RequestBody ItineraryRequest data, @RequestParam String city) {
+        return itineraryService.streamItinerary(city, data);
     }
 
     @GetMapping("/{sessionId}")
@@ -1,10 +1,15 @@
 package com.itinera.backend.api;
 
-import org.json.JSONObject;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import com.itinera.backend.service.PayloadStore;
 import com.itinera.backend.service.PlacesService;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/places")
@@ -16,18 +21,65 @@ public class PlacesController {
     }
 
     @PostMapping("/generate")
-    public Map<String, String> generatePlaces(@RequestBody Map<String, String> request) {
+    public CompletableFuture<Map<String, String>> generatePlaces(@RequestBody Map<String, String> request) {
         String city = request.get("location");
-        String sessionId = placesService.generatePlaces(city);
-        return Map.of("sessionId", sessionId);
+        return placesService.generatePlaces(city)
+                .thenApply(sessionId -> Map.of("sessionId", sessionId));
     }
 
+    // Serves the validated bytes stored at generation time: no parse, no re-encode
     @GetMapping("/{sessionId}")
-    public Object getPlaces(@PathVariable String sessionId) {
-        String cached = placesService.getPlaces(sessionId);
+    public ResponseEntity<?> getPlaces(@PathVariable String sessionId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        PayloadStore.Encoded cached = placesService.getPlaces(sessionId);
         if (cached == null) {
-            return Map.of("error", "No data found for this sessionId");
+            return ResponseEntity.ok(Map.of("error", "No data found for this sessionId"));
         }
-        return new JSONObject(cached).toMap();
+
+        // Deflated or not, the body depends on Accept-Encoding, so shared caches must key on it
+        if (cached.isDeflated() && !acceptsDeflate(acceptEncoding)) {
+            byte[] json = cached.decoded();
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .contentLength(json.length)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .body(json);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(cached.bodyLength())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (cached.isDeflated())
+            response.header(HttpHeaders.CONTENT_ENCODING, "deflate");
+        return response.body(new InputStreamResource(cached.body()));
+    }
+
+    // True when Accept-Encoding gives deflate (or, failing that, *) a non-zero q-value
+    static boolean acceptsDeflate(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+        Double deflate = null, wildcard = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("deflate"))
+                deflate = q;
+            else if (coding.equals("*"))
+                wildcard = q;
+        }
+        Double q = deflate != null ? deflate : wildcard;
+        return q != null && q > 0;
     }
 }
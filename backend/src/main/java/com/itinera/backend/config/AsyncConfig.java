@@ -0,0 +1,19 @@
+package com.itinera.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Async controller responses (LLM calls) outlive the container's default 30s async timeout
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+    @Value("${itinera.async.request-timeout-ms:120000}")
+    private long requestTimeoutMs;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(requestTimeoutMs);
+    }
+}
@@ -0,0 +1,18 @@
+package com.itinera.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DayPlan {
+    private List<Place> places; // visiting order
+    private List<ScheduledStop> schedule;
+    private int returnTime; // back at the hotel, minutes since midnight
+    private boolean feasible; // every stop fits its opening hours
+    private boolean estimated; // travel times from straight-line distance, OSRM was unavailable
+}
@@ -8,4 +8,6 @@ public class GenerateOrderRequest {
     private int days;
     private Hotel hotel;
     private List<Place> places;
+    private Double radiusKm; // optional: only plan places this close to the hotel
+    private Boolean prune; // optional: keep only what fits each day (max stops), best priority first
 }
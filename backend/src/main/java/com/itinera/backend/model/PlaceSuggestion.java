@@ -0,0 +1,30 @@
+package com.itinera.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One attraction as generated by the places prompt; JSON names match the prompt's schema
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PlaceSuggestion {
+    private String name;
+    private String description;
+    @JsonProperty("read_more_link")
+    private String readMoreLink;
+    @JsonProperty("open_time")
+    private String openTime;
+    @JsonProperty("close_time")
+    private String closeTime;
+    @JsonProperty("ideal_start_time")
+    private String idealStartTime;
+    @JsonProperty("ideal_end_time")
+    private String idealEndTime;
+    private int priority;
+    private double latitude;
+    private double longitude;
+}
@@ -0,0 +1,14 @@
+package com.itinera.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanEdit {
+    private String action; // add, remove or pin (move to another day)
+    private Place place; // matched by name and coordinates for everything but add
+    private Integer day; // 0-based; optional for add (best day), required for pin
+}
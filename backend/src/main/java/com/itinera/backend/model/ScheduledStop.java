@@ -0,0 +1,15 @@
+package com.itinera.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledStop {
+    private String name;
+    private int arrivalTime; // minutes since midnight, same unit as Place.openTime
+    private int departureTime;
+    private boolean late; // visit cannot fit inside openTime..closeTime
+}
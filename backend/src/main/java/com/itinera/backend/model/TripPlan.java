@@ -0,0 +1,18 @@
+package com.itinera.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripPlan {
+    private List<List<Place>> clusters;
+    private List<DayPlan> schedules; // one per cluster, same order
+    private String planId; // handle for edits, null when the plan was not kept
+    private Hotel hotel;
+    private List<Place> dropped; // outside the radius or cut by pruning, null for edits
+}
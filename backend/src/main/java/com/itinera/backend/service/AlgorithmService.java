@@ -1,11 +1,29 @@
 package com.itinera.backend.service;
 
+import com.itinera.backend.algorithm.BalancedClusterer;
+import com.itinera.backend.algorithm.KMeansClusterer;
+import com.itinera.backend.algorithm.Route;
+import com.itinera.backend.algorithm.Schedule;
+import com.itinera.backend.algorithm.SpatialIndex;
+import com.itinera.backend.algorithm.TimeWindows;
+import com.itinera.backend.model.DayPlan;
+import com.itinera.backend.model.GenerateOrderRequest;
 import com.itinera.backend.model.Place;
 import com.itinera.backend.model.Hotel;
+import com.itinera.backend.model.PlanEdit;
+import com.itinera.backend.model.ScheduledStop;
+import com.itinera.backend.model.TripPlan;
+import com.itinera.backend.util.PlanKeys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 @Service
 public class AlgorithmService {
@@ -13,201 +31,889 @@ public class AlgorithmService {
     @Autowired
     private OsrmMatrixService osrmMatrixService;
 
-    // Step 1: K-Means Clustering to group places into N days
-    public List<List<Place>> clusterPlaces(List<Place> places, int days) {
+    @Autowired
+    private RouteSolverEngine routeSolverEngine;
+
+    @Autowired
+    private PlanStore planStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Planning stages as observations: timers always, child spans of the request when tracing is on
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    @Value("${itinera.solver.time-windows:true}")
+    private boolean timeWindowsEnabled;
+
+    // Clock when the day's route leaves the hotel (minutes since midnight, 540 = 9:00 AM)
+    @Value("${itinera.solver.day-start-minute:540}")
+    private int dayStartMinute;
+
+    @Value("${itinera.plan.deadline-ms:15000}")
+    private long planDeadlineMs;
+
+    @Value("${itinera.cluster.seed:42}")
+    private long clusterSeed;
+
+    // "balanced" caps stops and evens out explore + travel minutes per day; "kmeans" is purely geographic
+    @Value("${itinera.cluster.mode:balanced}")
+    private String clusterMode;
+
+    @Value("${itinera.cluster.max-stops-per-day:10}")
+    private int maxStopsPerDay;
+
+    @Value("${itinera.cluster.balance-slack:0.15}")
+    private double balanceSlack;
+
+    // From this many places on, K-Means runs over grid cells weighted by their place count
+    @Value("${itinera.cluster.grid-min-places:500}")
+    private int gridMinPlaces;
+
+    @Value("${itinera.cluster.grid-cell-km:0.25}")
+    private double gridCellKm;
+
+    // Default hotel radius for candidates when the request sets none; 0 keeps every place
+    @Value("${itinera.candidates.radius-km:0}")
+    private double candidateRadiusKm;
+
+    @Value("${itinera.batch.max-matrix-stops:300}")
+    private int batchMaxMatrixStops;
+
+    // A batch trip still unfinished after this long fails on its own line; the others carry on
+    @Value("${itinera.batch.trip-timeout-ms:60000}")
+    private long batchTripTimeoutMs;
+
+    private final KMeansClusterer kMeans = new KMeansClusterer(100);
+
+    // Straight-line km to estimated driving minutes, for day-load balancing
+    private final double minutesPerKm;
+
+    // Degraded-mode matrix when OSRM is down or too slow
+    private final HaversineMatrixProvider haversineMatrix;
+
+    // Blocking OSRM waits park cheaply on virtual threads
+    private final ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Route searches are CPU-bound: one thread per core, never more
+    private final ExecutorService solverPool = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            Thread.ofPlatform().name("route-solver-", 0).daemon(true).factory());
+
+    // Batch trips are many small uneven tasks: work stealing keeps every core busy
+    private final ForkJoinPool batchPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    public AlgorithmService(@Value("${routing.haversine.detour-factor:1.3}") double detourFactor,
+            @Value("${routing.haversine.speed-kmh:25}") double speedKmh) {
+        this.haversineMatrix = new HaversineMatrixProvider(detourFactor, speedKmh);
+        this.minutesPerKm = 60 * detourFactor / speedKmh;
+    }
+
+    /**
+     * Clusters places into N days (K-Means, then capacity balancing). Deterministic for a given
+     * seed: the same places and days always give the same clusters, which is what makes generated
+     * plans cacheable.
+     */
+    public List<List<Place>> clusterPlaces(List<Place> places, int days, long seed) {
         if (places == null || places.isEmpty()) {
             throw new IllegalArgumentException("Places list cannot be empty");
         }
+        return Observation.createNotStarted("itinera.plan.cluster", observationRegistry)
+                .lowCardinalityKeyValue("mode", clusterMode.toLowerCase(Locale.ROOT))
+                .observe(() -> cluster(places, days, seed));
+    }
 
+    private List<List<Place>> cluster(List<Place> places, int days, long seed) {
         // Ensure days does not exceed number of places
-        days = Math.min(days, places.size());
-
-        Random random = new Random();
-        List<double[]> centroids = new ArrayList<>();
+        days = Math.max(1, Math.min(days, places.size()));
+
+        int n = places.size();
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = places.get(i).getLatitude();
+            lon[i] = places.get(i).getLongitude();
+        }
 
-        // Initialize unique centroids
-        Set<Integer> usedIndices = new HashSet<>();
-        while (centroids.size() < days) {
-            int idx = random.nextInt(places.size());
-            if (usedIndices.add(idx)) {
-                Place p = places.get(idx);
-                centroids.add(new double[] { p.getLatitude(), p.getLongitude() });
+        boolean grid = n >= gridMinPlaces;
+        KMeansClusterer.Clustering result = grid
+                ? clusterCells(lat, lon, days, seed)
+                : kMeans.cluster(lat, lon, days, seed);
+        System.out.println("✅ K-Means finished in " + result.iterations + " iterations");
+        meterRegistry.summary("itinera.cluster.iterations", "algorithm", grid ? "grid" : "kmeans")
+                .record(result.iterations);
+
+        if ("balanced".equalsIgnoreCase(clusterMode)) {
+            double[] explore = new double[n];
+            for (int i = 0; i < n; i++) {
+                explore[i] = places.get(i).getExploreTime();
             }
+            result = new BalancedClusterer(20, balanceSlack)
+                    .cluster(lat, lon, explore, days, maxStopsPerDay, minutesPerKm, result.assignment);
+            meterRegistry.summary("itinera.cluster.iterations", "algorithm", "balanced").record(result.iterations);
         }
 
-        boolean changed = true;
         List<List<Place>> clusters = new ArrayList<>();
-        int iteration = 0;
+        for (int i = 0; i < days; i++) {
+            clusters.add(new ArrayList<>());
+        }
+        for (int i = 0; i < n; i++) {
+            clusters.get(result.assignment[i]).add(places.get(i));
+        }
+
+        for (int i = 0; i < clusters.size(); i++) {
+            System.out.println("Day " + (i + 1) + " cluster size: " + clusters.get(i).size());
+        }
 
-        while (changed && iteration < 100) {
-            iteration++;
-            changed = false;
+        return clusters;
+    }
 
-            // Initialize empty clusters
-            clusters.clear();
-            for (int i = 0; i < days; i++) {
-                clusters.add(new ArrayList<>());
-            }
+    /**
+     * K-Means over occupied grid cells instead of places: iterations cost cells × days however
+     * dense the catalog is, and each place then follows its cell. Falls back to plain K-Means
+     * when there are fewer cells than days.
+     */
+    private KMeansClusterer.Clustering clusterCells(double[] lat, double[] lon, int days, long seed) {
+        SpatialIndex.Cells cells = new SpatialIndex(lat, lon).cells(gridCellKm);
+        if (cells.weight.length < days)
+            return kMeans.cluster(lat, lon, days, seed);
+
+        KMeansClusterer.Clustering byCell = kMeans.cluster(cells.lat, cells.lon, cells.weight, days, seed);
+        int[] assignment = new int[lat.length];
+        for (int i = 0; i < assignment.length; i++)
+            assignment[i] = byCell.assignment[cells.cellOf[i]];
+        return new KMeansClusterer.Clustering(assignment, byCell.iterations);
+    }
 
-            // Assign each place to the nearest centroid
-            for (Place p : places) {
-                int nearest = 0;
-                double minDist = Double.MAX_VALUE;
+    /**
+     * Keeps the places within {@code radiusKm} of the hotel (the configured default when null; 0
+     * keeps every place), in request order. One {@link SpatialIndex} build and a radius query, so
+     * a catalog of thousands stays cheap.
+     */
+    public List<Place> candidates(List<Place> places, Hotel hotel, Double radiusKm) {
+        double radius = radiusKm != null ? radiusKm : candidateRadiusKm;
+        if (places == null || hotel == null || radius <= 0)
+            return places;
+
+        int n = places.size();
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = places.get(i).getLatitude();
+            lon[i] = places.get(i).getLongitude();
+        }
+        int[] near = new SpatialIndex(lat, lon).within(hotel.getLatitude(), hotel.getLongitude(), radius);
+        if (near.length == 0)
+            throw new IllegalArgumentException("No places within " + radius + " km of the hotel");
+
+        List<Place> result = new ArrayList<>(near.length);
+        for (int i : near)
+            result.add(places.get(i));
+        return result;
+    }
 
-                for (int i = 0; i < centroids.size(); i++) {
-                    double dist = haversine(p.getLatitude(), p.getLongitude(),
-                            centroids.get(i)[0], centroids.get(i)[1]);
-                    if (dist < minDist) {
-                        minDist = dist;
-                        nearest = i;
-                    }
-                }
-                clusters.get(nearest).add(p);
+    // A trip's days and the places left out of them
+    private static final class Selection {
+        final List<List<Place>> days;
+        final List<Place> dropped;
+
+        Selection(List<List<Place>> days, List<Place> dropped) {
+            this.days = days;
+            this.dropped = dropped;
+        }
+    }
+
+    /**
+     * Clusters the candidates, then, only when the caller asked for pruning, cuts each day down
+     * to max stops per day: lowest priority value first, then nearest to the hotel. Cutting after
+     * clustering keeps every place in the geographic split (large sets go through the grid path)
+     * and drops the weakest of each area rather than whole areas. {@code dropped} starts with the
+     * places the radius already removed.
+     */
+    private Selection select(List<Place> places, int days, Hotel hotel, boolean prune, long seed,
+            List<Place> dropped) {
+        List<List<Place>> clusters = clusterPlaces(places, days, seed);
+        if (!prune)
+            return new Selection(clusters, dropped);
+
+        List<Place> cut = new ArrayList<>(dropped);
+        List<List<Place>> kept = new ArrayList<>(clusters.size());
+        for (List<Place> cluster : clusters) {
+            if (cluster.size() <= maxStopsPerDay) {
+                kept.add(cluster);
+                continue;
             }
+            Integer[] order = new Integer[cluster.size()];
+            for (int i = 0; i < order.length; i++)
+                order[i] = i;
+            Arrays.sort(order, Comparator.<Integer>comparingInt(i -> cluster.get(i).getPriority())
+                    .thenComparingDouble(i -> haversine(hotel.getLatitude(), hotel.getLongitude(),
+                            cluster.get(i).getLatitude(), cluster.get(i).getLongitude())));
+            boolean[] keep = new boolean[cluster.size()];
+            for (int k = 0; k < maxStopsPerDay; k++)
+                keep[order[k]] = true;
+
+            List<Place> day = new ArrayList<>(maxStopsPerDay);
+            for (int i = 0; i < keep.length; i++)
+                (keep[i] ? day : cut).add(cluster.get(i));
+            kept.add(day);
+        }
+        return new Selection(kept, cut);
+    }
 
-            // Handle empty clusters by moving a random place into it
-            for (int i = 0; i < clusters.size(); i++) {
-                if (clusters.get(i).isEmpty()) {
-                    clusters.get(i).add(places.get(random.nextInt(places.size())));
-                }
+    // Places of {@code all} that are not in {@code kept}, by identity, in order
+    private static List<Place> missing(List<Place> all, List<Place> kept) {
+        if (all == kept || all.size() == kept.size())
+            return new ArrayList<>();
+        Set<Place> in = Collections.newSetFromMap(new IdentityHashMap<>());
+        in.addAll(kept);
+        List<Place> out = new ArrayList<>();
+        for (Place p : all)
+            if (!in.contains(p))
+                out.add(p);
+        return out;
+    }
+
+    /** Cache key of the plan {@link #planTrip} produces for this request under the current settings. */
+    public String planKey(GenerateOrderRequest request) {
+        return PlanKeys.plan(request, solverConfig());
+    }
+
+    /**
+     * Clusters a trip into days and plans every day, keeping the result in the {@link PlanStore}
+     * under {@code planKey} so later edits can go through {@link #editPlan}.
+     * Deterministic for a key: places are taken in canonical order and clustering is seeded from
+     * the key, so the result can be cached under it. Places outside the radius or cut by pruning
+     * come back as {@code dropped}.
+     */
+    public TripPlan planTrip(GenerateOrderRequest request, String planKey) {
+        Hotel hotel = request.getHotel();
+        List<Place> sorted = PlanKeys.sorted(request.getPlaces());
+        List<Place> places = candidates(sorted, hotel, request.getRadiusKm());
+        Selection selection = select(places, request.getDays(), hotel, Boolean.TRUE.equals(request.getPrune()),
+                PlanKeys.seed(planKey), missing(sorted, places));
+        PlanStore.Plan plan = solveDays(selection.days, hotel);
+        planStore.put(planKey, plan);
+        return new TripPlan(selection.days, plan.schedules, planKey, hotel, selection.dropped);
+    }
+
+    /**
+     * Makes a plan editable again on an instance that never computed it, or has evicted it, from
+     * its cached schedules. The matrix is fetched again, normally from the pair store.
+     */
+    public void restorePlan(String planId, Hotel hotel, List<DayPlan> schedules) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(planDeadlineMs);
+        StopIndex stops = new StopIndex();
+        stops.add(hotelStop(hotel));
+        for (DayPlan schedule : schedules)
+            schedule.getPlaces().forEach(stops::add);
+
+        MatrixResult matrix = fetchWithin(() -> osrmMatrixService.getMatrix(stops.stops), deadline);
+        boolean estimated = matrix == null;
+        if (estimated)
+            matrix = haversineMatrix.matrix(stops.stops);
+        planStore.put(planId, new PlanStore.Plan(hotel, stops, matrix, estimated, schedules));
+    }
+
+    // Every setting that changes what planTrip returns for the same request, travel-time source included
+    private String solverConfig() {
+        return String.format(Locale.ROOT, "tw=%b,start=%d,mode=%s,stops=%d,slack=%s,grid=%d/%s,radius=%s,mpk=%s,%s,%s",
+                timeWindowsEnabled, dayStartMinute, clusterMode.toLowerCase(Locale.ROOT), maxStopsPerDay,
+                balanceSlack, gridMinPlaces, gridCellKm, candidateRadiusKm, minutesPerKm, routeSolverEngine.config(),
+                osrmMatrixService.source());
+    }
+
+    private PlanStore.Plan solveDays(List<List<Place>> clusters, Hotel hotel) {
+        return Observation.createNotStarted("itinera.plan.days", observationRegistry)
+                .observe(() -> solveTrip(clusters, hotel));
+    }
+
+    // One matrix fetch for the trip, then every day on the solver pool; days still running at
+    // the deadline fall back to Haversine order, and an OSRM failure means straight-line estimates
+    private PlanStore.Plan solveTrip(List<List<Place>> clusters, Hotel hotel) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(planDeadlineMs);
+
+        // Trip matrix: hotel at index 0, then every distinct place once
+        StopIndex stops = new StopIndex();
+        stops.add(hotelStop(hotel));
+        for (List<Place> cluster : clusters)
+            cluster.forEach(stops::add);
+
+        // Degraded mode: straight-line estimates still go through the real route solver
+        MatrixResult tripMatrix = Observation.createNotStarted("itinera.plan.matrix", observationRegistry)
+                .observe(() -> fetchWithin(() -> osrmMatrixService.getMatrix(stops.stops), deadline));
+        boolean estimated = tripMatrix == null;
+        if (estimated)
+            tripMatrix = haversineMatrix.matrix(stops.stops);
+
+        List<Future<DayPlan>> futures = new ArrayList<>();
+        for (List<Place> cluster : clusters) {
+            MatrixView view = dayView(tripMatrix, stops, hotel, cluster);
+            futures.add(solverPool.submit(() -> solveDay(withHotel(cluster, hotel), view, estimated, null)));
+        }
+
+        List<DayPlan> plans = collect(futures, clusters, hotel, deadline);
+        return new PlanStore.Plan(hotel, stops, tripMatrix, estimated, plans);
+    }
+
+    // Waits for each day until the deadline; late or failed days get the nearest-first order
+    private List<DayPlan> collect(List<Future<DayPlan>> futures, List<List<Place>> clusters, Hotel hotel,
+            long deadline) {
+        List<DayPlan> plans = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            Future<DayPlan> future = futures.get(i);
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                plans.add(future.get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                System.err.println("Day " + (i + 1) + " missed the planning deadline, using Haversine order");
+                fallback("deadline");
+                plans.add(fallbackPlan(clusters.get(i), hotel));
+            } catch (InterruptedException e) {
+                // Caller gave up on the request: stop every day still in flight
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Planning interrupted");
+            } catch (ExecutionException e) {
+                System.err.println("Route search failed, using Haversine order: " + e.getCause());
+                fallback("error");
+                plans.add(fallbackPlan(clusters.get(i), hotel));
             }
+        }
+        return plans;
+    }
 
-            // Recalculate centroids
-            for (int i = 0; i < days; i++) {
-                List<Place> cluster = clusters.get(i);
-                double avgLat = cluster.stream().mapToDouble(Place::getLatitude).average().orElse(0);
-                double avgLon = cluster.stream().mapToDouble(Place::getLongitude).average().orElse(0);
-                double[] newCentroid = { avgLat, avgLon };
+    /**
+     * Applies one edit to a stored plan and re-solves only the days it touches. An added place
+     * goes to the day where it is cheapest to insert (unless a day is given), and needs OSRM only
+     * for its own row and column when it is new to the trip; every touched day is warm-started
+     * from its previous order. Pinning moves a place to the given day; nothing else ever moves, so it
+     * stays there until edited again.
+     *
+     * Plans are never changed in place: the edited plan gets a new id, returned with it, and the
+     * old id still names the plan before the edit. Returns null for an unknown or expired plan.
+     */
+    public TripPlan editPlan(String planId, PlanEdit edit) {
+        String action = edit == null || edit.getAction() == null ? "" : edit.getAction().toLowerCase(Locale.ROOT);
+        if (!List.of("add", "remove", "pin").contains(action))
+            throw new IllegalArgumentException("Unknown edit action: " + (edit == null ? null : edit.getAction()));
+        if (edit.getPlace() == null)
+            throw new IllegalArgumentException("Edit needs a place");
+
+        PlanStore.Plan plan = planStore.get(planId);
+        if (plan == null)
+            return null;
+
+        PlanStore.Plan edited = Observation.createNotStarted("itinera.plan.edit", observationRegistry)
+                .lowCardinalityKeyValue("action", action)
+                .observe(() -> applyEdit(plan, action, edit.getPlace(), edit.getDay()));
+        List<List<Place>> days = edited.schedules.stream().map(DayPlan::getPlaces).toList();
+        return new TripPlan(days, edited.schedules, planStore.save(edited), edited.hotel, null);
+    }
 
-                if (haversine(newCentroid[0], newCentroid[1],
-                        centroids.get(i)[0], centroids.get(i)[1]) > 1e-6) {
-                    centroids.set(i, newCentroid);
-                    changed = true;
+    private PlanStore.Plan applyEdit(PlanStore.Plan plan, String action, Place place, Integer day) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(planDeadlineMs);
+        Hotel hotel = plan.hotel;
+        List<List<Place>> days = new ArrayList<>();
+        for (DayPlan schedule : plan.schedules)
+            days.add(new ArrayList<>(schedule.getPlaces()));
+        if (day != null && (day < 0 || day >= days.size()))
+            throw new IllegalArgumentException("Day " + day + " is not in the plan");
+
+        StopIndex stops = plan.stops;
+        GroupMatrix matrix = new GroupMatrix(plan.matrix, plan.estimated);
+        Set<Integer> touched = new TreeSet<>();
+        int[] at = locate(days, place);
+
+        switch (action) {
+            case "add" -> {
+                if (at != null)
+                    throw new IllegalArgumentException(place.getName() + " is already in the plan");
+                if (!stops.contains(place)) {
+                    stops = stops.copy();
+                    stops.add(place);
+                    matrix = extendMatrix(plan, stops, deadline);
                 }
+                int target = day != null ? day : bestDay(matrix.matrix, stops, hotel, days, place);
+                days.get(target).add(place);
+                touched.add(target);
+            }
+            case "remove" -> {
+                requirePresent(at, place);
+                days.get(at[0]).remove(at[1]);
+                touched.add(at[0]);
+            }
+            default -> {
+                requirePresent(at, place);
+                if (day == null || day == at[0])
+                    throw new IllegalArgumentException("Pin needs a day other than the current one");
+                days.get(day).add(days.get(at[0]).remove(at[1]));
+                touched.add(at[0]);
+                touched.add(day);
             }
         }
 
-        System.out.println("✅ K-Means finished in " + iteration + " iterations");
-        for (int i = 0; i < clusters.size(); i++) {
-            System.out.println("Day " + (i + 1) + " cluster size: " + clusters.get(i).size());
+        // Untouched days keep their schedules; touched ones start from what they were
+        List<Future<DayPlan>> futures = new ArrayList<>();
+        List<List<Place>> touchedDays = new ArrayList<>();
+        for (int d : touched) {
+            List<Place> current = days.get(d);
+            int[] initial = keptOrder(plan.schedules.get(d).getPlaces(), current);
+            MatrixView view = dayView(matrix.matrix, stops, hotel, current);
+            boolean estimated = matrix.estimated;
+            futures.add(solverPool.submit(() -> solveDay(withHotel(current, hotel), view, estimated, initial)));
+            touchedDays.add(current);
         }
 
-        return clusters;
+        List<DayPlan> solved = collect(futures, touchedDays, hotel, deadline);
+        List<DayPlan> schedules = new ArrayList<>(plan.schedules);
+        int k = 0;
+        for (int d : touched)
+            schedules.set(d, solved.get(k++));
+        return new PlanStore.Plan(hotel, stops, matrix.matrix, matrix.estimated, schedules);
     }
 
-    // Step 2: TSP for daily optimization (brute-force but using OSRM matrix)
-    public List<Place> optimizeDailyOrder(List<Place> dayPlaces, Hotel hotel) {
-        try {
-            // Combine hotel + dayPlaces
-            List<Place> allPlaces = new ArrayList<>();
-            allPlaces.add(new Place(hotel.getName(), "", hotel.getLatitude(), hotel.getLongitude(), 0, 0, 0, 0, 0, 0));
-            allPlaces.addAll(dayPlaces);
+    // {day, position} of the place, matched by name and coordinates; null when absent
+    private static int[] locate(List<List<Place>> days, Place place) {
+        for (int d = 0; d < days.size(); d++) {
+            List<Place> day = days.get(d);
+            for (int i = 0; i < day.size(); i++) {
+                if (placeKey(day.get(i)).equals(placeKey(place)))
+                    return new int[] { d, i };
+            }
+        }
+        return null;
+    }
 
-            // Get OSRM distance matrix once
-            OsrmMatrixService.MatrixResult matrix = osrmMatrixService.getMatrix(allPlaces);
-            double[][] distances = matrix.distancesMeters;
-            double[][] durations = matrix.durationsSeconds;
+    private static void requirePresent(int[] at, Place place) {
+        if (at == null)
+            throw new IllegalArgumentException(place.getName() + " is not in the plan");
+    }
 
-            // TSP on indices 1..N, with 0 as start & end (hotel)
-            List<Integer> indices = new ArrayList<>();
-            for (int i = 1; i < allPlaces.size(); i++)
-                indices.add(i);
+    private static String placeKey(Place p) {
+        return p.getName() + "@" + StopIndex.key(p);
+    }
 
-            List<Integer> bestOrder = new ArrayList<>();
-            double[] bestCost = { Double.MAX_VALUE };
-            boolean[] visited = new boolean[dayPlaces.size()];
+    // Nodes (1-based, into withHotel(current)) that were already on the day, in their previous order
+    private static int[] keptOrder(List<Place> previous, List<Place> current) {
+        Set<Place> before = Collections.newSetFromMap(new IdentityHashMap<>());
+        before.addAll(previous);
+        int[] order = new int[current.size()];
+        int count = 0;
+        for (int i = 0; i < current.size(); i++) {
+            if (before.contains(current.get(i)))
+                order[count++] = i + 1;
+        }
+        return Arrays.copyOf(order, count);
+    }
 
-            // Recursive brute force (≤120 permutations)
-            findBestRoute(distances, durations, dayPlaces, hotel, visited, -1, 0, new ArrayList<>(), bestCost,
-                    bestOrder);
+    // Day whose route grows least in travel time by visiting the place, preferring days under the stop cap
+    private int bestDay(MatrixResult matrix, StopIndex stops, Hotel hotel, List<List<Place>> days, Place place) {
+        int h = stops.of(hotelStop(hotel));
+        int x = stops.of(place);
+        int best = 0;
+        boolean bestOpen = false;
+        double bestDelta = Double.POSITIVE_INFINITY;
+        for (int d = 0; d < days.size(); d++) {
+            List<Place> day = days.get(d);
+            boolean open = day.size() < maxStopsPerDay;
+            double delta = Double.POSITIVE_INFINITY;
+            int prev = h;
+            for (int i = 0; i <= day.size(); i++) {
+                int next = i == day.size() ? h : stops.of(day.get(i));
+                delta = Math.min(delta,
+                        matrix.duration(prev, x) + matrix.duration(x, next) - matrix.duration(prev, next));
+                prev = next;
+            }
+            if ((open && !bestOpen) || (open == bestOpen && delta < bestDelta)) {
+                best = d;
+                bestOpen = open;
+                bestDelta = delta;
+            }
+        }
+        return best;
+    }
 
-            // Map best index order back to places
-            List<Place> ordered = new ArrayList<>();
-            for (int idx : bestOrder)
-                ordered.add(allPlaces.get(idx + 1));
+    // The stored matrix plus rows and columns for newly added stops; estimates if OSRM is unavailable
+    private GroupMatrix extendMatrix(PlanStore.Plan plan, StopIndex stops, long deadline) {
+        if (!plan.estimated) {
+            MatrixResult extended = fetchWithin(() -> osrmMatrixService.extend(plan.matrix, stops.stops), deadline);
+            if (extended != null)
+                return new GroupMatrix(extended, false);
+        }
+        MatrixResult estimated = OsrmMatrixService.grow(plan.matrix, stops.stops.size());
+        try {
+            OsrmMatrixService.fillAppended(haversineMatrix, stops.stops, plan.matrix.rows(), estimated);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return new GroupMatrix(estimated, true);
+    }
 
-            System.out.println("✅ Best route cost: " + bestCost[0]);
-            return ordered;
+    /**
+     * Plans many trips at once; each future completes as soon as its own trip is done.
+     *
+     * Trips that share coordinates share one matrix over the union of their distinct stops (up
+     * to {@code itinera.batch.max-matrix-stops} per group), as long as the union is no bigger than
+     * fetching them apart; unrelated trips get their own fetch, and pairs they do share come from
+     * the pair store. Clustering and every day's route search run on a work-stealing pool; a
+     * group's days start as soon as its matrix lands. A trip not done within
+     * {@code itinera.batch.trip-timeout-ms} fails with a TimeoutException.
+     */
+    public List<CompletableFuture<TripPlan>> planBatch(List<GenerateOrderRequest> trips) {
+        List<CompletableFuture<TripPlan>> results = new ArrayList<>();
+        for (int t = 0; t < trips.size(); t++)
+            results.add(null);
+
+        List<List<Place>> candidates = new ArrayList<>(Collections.nCopies(trips.size(), null));
+        for (List<Integer> group : groupTrips(trips, candidates, results)) {
+            StopIndex stops = new StopIndex();
+            for (int t : group) {
+                stops.add(hotelStop(trips.get(t).getHotel()));
+                candidates.get(t).forEach(stops::add);
+            }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.err.println("Falling back to Haversine: " + e.getMessage());
-            return fallbackOrder(dayPlaces, hotel);
+            CompletableFuture<GroupMatrix> matrix = CompletableFuture
+                    .supplyAsync(() -> fetchOrNull(stops.stops), ioExecutor)
+                    .completeOnTimeout(null, planDeadlineMs, TimeUnit.MILLISECONDS)
+                    .thenApply(m -> m != null
+                            ? new GroupMatrix(m, false)
+                            : new GroupMatrix(haversineMatrix.matrix(stops.stops), true));
+
+            for (int t : group) {
+                GenerateOrderRequest trip = trips.get(t);
+                Hotel hotel = trip.getHotel();
+                List<Place> places = candidates.get(t);
+                CompletableFuture<Selection> clusters = CompletableFuture.supplyAsync(
+                        () -> select(places, trip.getDays(), hotel, Boolean.TRUE.equals(trip.getPrune()), clusterSeed,
+                                missing(trip.getPlaces(), places)),
+                        batchPool);
+
+                CompletableFuture<TripPlan> plan = clusters.thenCombine(matrix, (selection, shared) -> {
+                    List<List<Place>> days = selection.days;
+                    List<CompletableFuture<DayPlan>> plans = new ArrayList<>();
+                    for (List<Place> cluster : days) {
+                        MatrixView view = dayView(shared.matrix, stops, hotel, cluster);
+                        plans.add(CompletableFuture
+                                .supplyAsync(() -> solveDay(withHotel(cluster, hotel), view, shared.estimated, null),
+                                        batchPool)
+                                .exceptionally(e -> {
+                                    fallback("error");
+                                    return fallbackPlan(cluster, hotel);
+                                }));
+                    }
+                    return CompletableFuture.allOf(plans.toArray(CompletableFuture[]::new))
+                            .thenApply(done -> new TripPlan(days, plans.stream().map(CompletableFuture::join).toList(),
+                                    null, hotel, selection.dropped));
+                }).thenCompose(planned -> planned);
+                int index = t;
+                results.set(t, plan.orTimeout(batchTripTimeoutMs, TimeUnit.MILLISECONDS).exceptionallyCompose(
+                        e -> CompletableFuture.failedFuture(unwrap(e) instanceof TimeoutException
+                                ? new TimeoutException("Trip " + index + " missed its " + batchTripTimeoutMs
+                                        + " ms deadline")
+                                : unwrap(e))));
+            }
         }
+        return results;
     }
 
     /**
-     * Recursive permutation evaluator using cost function.
+     * Groups trips for shared matrices. A trip joins the group it shares most stops with when the
+     * union stays under the stop cap and its matrix has no more cells than the two would apart,
+     * i.e. (group + trip - shared)² &lt;= group² + trip²; otherwise it starts a group of its own.
      */
-    private void findBestRoute(
-            double[][] dist,
-            double[][] dur,
-            List<Place> places,
-            Hotel hotel,
-            boolean[] visited,
-            int currentIdx, // -1 = hotel
-            double currentCost,
-            List<Integer> path,
-            double[] bestCost,
-            List<Integer> bestPath) {
-        if (path.size() == places.size()) {
-            // ➕ Return to hotel
-            int hotelIdx = 0; // hotel is 0 in OSRM matrix
-            int lastPlaceIdx = currentIdx + 1;
-            double backDist = dist[lastPlaceIdx][hotelIdx];
-            double backDur = dur[lastPlaceIdx][hotelIdx];
-            double backCost = computeCost(backDist, backDur, 0, 0, 0);
-            double total = currentCost + backCost;
+    private List<List<Integer>> groupTrips(List<GenerateOrderRequest> trips, List<List<Place>> candidates,
+            List<CompletableFuture<TripPlan>> results) {
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Set<String>> groupStops = new ArrayList<>();
+        Map<String, Integer> groupOf = new HashMap<>(); // stop key -> first group holding it
+
+        for (int t = 0; t < trips.size(); t++) {
+            GenerateOrderRequest trip = trips.get(t);
+            if (trip == null || trip.getHotel() == null || trip.getPlaces() == null || trip.getPlaces().isEmpty()) {
+                results.set(t, CompletableFuture.failedFuture(
+                        new IllegalArgumentException("Trip needs a hotel and at least one place")));
+                continue;
+            }
+            try {
+                candidates.set(t, candidates(trip.getPlaces(), trip.getHotel(), trip.getRadiusKm()));
+            } catch (IllegalArgumentException e) {
+                results.set(t, CompletableFuture.failedFuture(e));
+                continue;
+            }
+
+            Set<String> stops = new HashSet<>();
+            stops.add(StopIndex.key(hotelStop(trip.getHotel())));
+            candidates.get(t).forEach(p -> stops.add(StopIndex.key(p)));
+            Map<Integer, Integer> shared = new HashMap<>();
+            for (String key : stops) {
+                Integer g = groupOf.get(key);
+                if (g != null)
+                    shared.merge(g, 1, Integer::sum);
+            }
 
-            if (total < bestCost[0]) {
-                bestCost[0] = total;
-                bestPath.clear();
-                bestPath.addAll(path);
+            int best = -1;
+            for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+                long group = groupStops.get(entry.getKey()).size();
+                long union = group + stops.size() - entry.getValue();
+                boolean worthIt = union <= batchMaxMatrixStops
+                        && union * union <= group * group + (long) stops.size() * stops.size();
+                if (worthIt && (best < 0 || entry.getValue() > shared.get(best)))
+                    best = entry.getKey();
             }
-            return;
+            if (best < 0) {
+                best = groups.size();
+                groups.add(new ArrayList<>());
+                groupStops.add(new HashSet<>());
+            }
+            groups.get(best).add(t);
+            groupStops.get(best).addAll(stops);
+            for (String key : stops)
+                groupOf.putIfAbsent(key, best);
         }
+        return groups;
+    }
 
-        for (int i = 0; i < places.size(); i++) {
-            if (!visited[i]) {
-                visited[i] = true;
-                path.add(i);
+    private MatrixResult fetchOrNull(List<Place> stops) {
+        try {
+            return osrmMatrixService.getMatrix(stops);
+        } catch (Exception e) {
+            System.err.println("Falling back to Haversine for batch group: " + e.getMessage());
+            fallback("osrm");
+            return null;
+        }
+    }
 
-                int fromIdx = (currentIdx == -1) ? 0 : currentIdx + 1;
-                int toIdx = i + 1;
-                double d = dist[fromIdx][toIdx];
-                double t = dur[fromIdx][toIdx];
+    // Blocking OSRM wait on a virtual thread, bounded by the request deadline; null means fall back
+    private MatrixResult fetchWithin(Callable<MatrixResult> request, long deadline) {
+        Future<MatrixResult> fetch = ioExecutor.submit(request);
+        try {
+            return fetch.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            fetch.cancel(true);
+            System.err.println("OSRM missed the planning deadline, falling back to Haversine");
+            fallback("osrm");
+            return null;
+        } catch (ExecutionException e) {
+            System.err.println("Falling back to Haversine: " + e.getCause().getMessage());
+            fallback("osrm");
+            return null;
+        } catch (InterruptedException e) {
+            fetch.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Planning interrupted");
+        }
+    }
 
-                Place p = places.get(i);
-                double timeWindow = (p.getCloseTime() - p.getOpenTime()) / 30.0;
-                double idealTime = (p.getIdealEndTime() - p.getIdealStartTime()) / 30.0;
-                double cost = computeCost(d, t, timeWindow, idealTime, p.getPriority());
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
 
-                findBestRoute(dist, dur, places, hotel, visited, i, currentCost + cost, path, bestCost, bestPath);
+    // Day slice of a shared matrix: the hotel as node 0, then the cluster's places in order
+    private MatrixView dayView(MatrixResult matrix, StopIndex stops, Hotel hotel, List<Place> cluster) {
+        int[] index = new int[cluster.size() + 1];
+        index[0] = stops.of(hotelStop(hotel));
+        for (int i = 0; i < cluster.size(); i++)
+            index[i + 1] = stops.of(cluster.get(i));
+        return new MatrixView(matrix, index);
+    }
 
-                path.remove(path.size() - 1);
-                visited[i] = false;
+    // Distinct stops keyed by coordinates: a travel matrix only depends on where a stop is
+    static final class StopIndex {
+        final List<Place> stops = new ArrayList<>();
+        private final Map<String, Integer> index = new HashMap<>();
+
+        // Stored plans share their index, so an edit that adds a stop works on a copy
+        StopIndex copy() {
+            StopIndex copy = new StopIndex();
+            copy.stops.addAll(stops);
+            copy.index.putAll(index);
+            return copy;
+        }
+
+        boolean contains(Place p) {
+            return index.containsKey(key(p));
+        }
+
+        void add(Place p) {
+            index.computeIfAbsent(key(p), k -> {
+                stops.add(p);
+                return stops.size() - 1;
+            });
+        }
+
+        int of(Place p) {
+            return index.get(key(p));
+        }
+
+        private static String key(Place p) {
+            return p.getLatitude() + "," + p.getLongitude();
+        }
+    }
+
+    private static final class GroupMatrix {
+        final MatrixResult matrix;
+        final boolean estimated;
+
+        GroupMatrix(MatrixResult matrix, boolean estimated) {
+            this.matrix = matrix;
+            this.estimated = estimated;
+        }
+    }
+
+    private Place hotelStop(Hotel hotel) {
+        return new Place(hotel.getName(), "", hotel.getLatitude(), hotel.getLongitude(), 0, 0, 0, 0, 0, 0);
+    }
+
+    private List<Place> withHotel(List<Place> dayPlaces, Hotel hotel) {
+        List<Place> allPlaces = new ArrayList<>();
+        allPlaces.add(hotelStop(hotel));
+        allPlaces.addAll(dayPlaces);
+        return allPlaces;
+    }
+
+    // CPU-bound part of a day: hotel is node 0, place i is node i + 1; initial warm-starts an edited day
+    private DayPlan solveDay(List<Place> allPlaces, MatrixView matrix, boolean estimated, int[] initial) {
+        List<Place> dayPlaces = allPlaces.subList(1, allPlaces.size());
+        int size = allPlaces.size();
+        double[] cost = buildCostMatrix(matrix, dayPlaces);
+        TimeWindows windows = buildTimeWindows(matrix, dayPlaces);
+        long started = System.nanoTime();
+        Route best;
+        if (initial != null)
+            best = timeWindowsEnabled
+                    ? routeSolverEngine.resolve(cost, size, windows, initial)
+                    : routeSolverEngine.resolve(cost, size, initial);
+        else
+            best = timeWindowsEnabled
+                    ? routeSolverEngine.solve(cost, size, windows)
+                    : routeSolverEngine.solve(cost, size);
+
+        String places = placesTag(dayPlaces.size());
+        meterRegistry.timer("itinera.route.solve", "places", places, "start", initial != null ? "warm" : "cold")
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        meterRegistry.summary("itinera.route.explored", "places", places).record(best.explored);
+        System.out.println("✅ Best route cost: " + best.cost);
+        return toDayPlan(allPlaces, best.order, windows.simulate(best.order), estimated);
+    }
+
+    // Exact sizes cover every exact-solver day; bigger days share a bucket to bound tag cardinality
+    static String placesTag(int places) {
+        if (places <= 20)
+            return String.valueOf(places);
+        return places <= 30 ? "21-30" : "31+";
+    }
+
+    // reason: osrm (matrix unavailable, Haversine estimates), deadline or error (nearest-first order)
+    private void fallback(String reason) {
+        meterRegistry.counter("itinera.plan.fallback", "reason", reason).increment();
+    }
+
+    private DayPlan fallbackPlan(List<Place> dayPlaces, Hotel hotel) {
+        return new DayPlan(fallbackOrder(dayPlaces, hotel), List.of(), 0, false, true);
+    }
+
+    @PreDestroy
+    void shutdownExecutors() {
+        ioExecutor.shutdownNow();
+        solverPool.shutdownNow();
+        batchPool.shutdownNow();
+    }
+
+    private DayPlan toDayPlan(List<Place> allPlaces, int[] order, Schedule schedule, boolean estimated) {
+        List<Place> ordered = new ArrayList<>();
+        List<ScheduledStop> stops = new ArrayList<>();
+        for (int k = 0; k < order.length; k++) {
+            Place p = allPlaces.get(order[k]);
+            ordered.add(p);
+            stops.add(new ScheduledStop(p.getName(), schedule.arrival[k], schedule.departure[k], schedule.late[k]));
+        }
+        return new DayPlan(ordered, stops, schedule.returnTime, schedule.feasible, estimated);
+    }
+
+    /**
+     * Opening windows and explore times in minutes, travel times converted from OSRM seconds.
+     */
+    private TimeWindows buildTimeWindows(MatrixView matrix, List<Place> places) {
+        int size = places.size() + 1;
+        double[] travel = new double[size * size];
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                travel[i * size + j] = i == j ? 0 : matrix.duration(i, j) / 60.0;
+
+        int[] open = new int[size];
+        int[] close = new int[size];
+        int[] explore = new int[size];
+        for (int i = 1; i < size; i++) {
+            Place p = places.get(i - 1);
+            open[i] = p.getOpenTime();
+            close[i] = p.getCloseTime();
+            explore[i] = p.getExploreTime();
+        }
+        return new TimeWindows(travel, size, open, close, explore, dayStartMinute);
+    }
+
+    /**
+     * Flattens the day's view of the OSRM matrices into a row-major cost matrix for the solver.
+     * Entering a place pays its travel plus scheduling terms; returning to the hotel pays travel only.
+     */
+    private double[] buildCostMatrix(MatrixView matrix, List<Place> places) {
+        int size = places.size() + 1;
+        double[] cost = new double[size * size];
+
+        for (int i = 0; i < size; i++) {
+            cost[i * size + i] = Double.POSITIVE_INFINITY;
+            if (i > 0)
+                cost[i * size] = computeCost(matrix.distance(i, 0), matrix.duration(i, 0), 0, 0, 0);
+        }
+
+        for (int j = 1; j < size; j++) {
+            Place p = places.get(j - 1);
+            double timeWindow = (p.getCloseTime() - p.getOpenTime()) / 30.0;
+            double idealTime = (p.getIdealEndTime() - p.getIdealStartTime()) / 30.0;
+            for (int i = 0; i < size; i++) {
+                if (i != j)
+                    cost[i * size + j] = computeCost(matrix.distance(i, j), matrix.duration(i, j), timeWindow, idealTime,
+                            p.getPriority());
             }
         }
+        return cost;
     }
 
     /**
      * Weighted cost function — combines travel effort + scheduling logic.
      * All time-based fields are divided by 30 for realism.
      */
-    private double computeCost(double dist, double dur, double timeWindow, double idealTime, int priority) {
+    static double computeCost(double dist, double dur, double timeWindow, double idealTime, int priority) {
         double distKm = dist / 1000.0;
         double durMin = dur / 60.0;
         return distKm * 3 + durMin * 5 + (timeWindow / 30.0) * 5 + (idealTime / 30.0) * 2 + priority * 3;
     }
 
+    // Last resort when a day's search fails or runs out of time: nearest to the hotel first
     private List<Place> fallbackOrder(List<Place> dayPlaces, Hotel hotel) {
-        dayPlaces.sort(Comparator.comparingDouble(
-                p -> haversine(hotel.getLatitude(), hotel.getLongitude(), p.getLatitude(), p.getLongitude())));
-        return dayPlaces;
+        // Distances computed once, not inside the comparator; sort a copy because the cluster
+        // list is shared with the response and with cancelled tasks
+        int n = dayPlaces.size();
+        double[] fromHotel = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            Place p = dayPlaces.get(i);
+            fromHotel[i] = haversine(hotel.getLatitude(), hotel.getLongitude(), p.getLatitude(), p.getLongitude());
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> fromHotel[i]));
+
+        List<Place> ordered = new ArrayList<>(n);
+        for (int i : order)
+            ordered.add(dayPlaces.get(i));
+        return ordered;
     }
 
-    // Haversine formula (used for K-Means + fallback)
-    private double haversine(double lat1, double lon1, double lat2, double lon2) {
+    // Haversine formula (used for the fallback order)
+    static double haversine(double lat1, double lon1, double lat2, double lon2) {
         double R = 6371;
         double dLat = Math.toRadians(lat2 - lat1);
         double dLon = Math.toRadians(lon2 - lon1);
@@ -0,0 +1,49 @@
+package com.itinera.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+/**
+ * Redis lookups per key family (places:city, itinerary:doc, places:session, ...) as
+ * itinera.cache.lookups{family, result}, result being hit, miss or stale.
+ */
+@Service
+public class CacheMetrics {
+
+    private final MeterRegistry registry;
+
+    public CacheMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void hit(String family) {
+        counter(family, "hit").increment();
+    }
+
+    public void miss(String family) {
+        counter(family, "miss").increment();
+    }
+
+    public void stale(String family) {
+        counter(family, "stale").increment();
+    }
+
+    public void record(String family, int hits, int misses) {
+        if (hits > 0)
+            counter(family, "hit").increment(hits);
+        if (misses > 0)
+            counter(family, "miss").increment(misses);
+    }
+
+    // "places:city:Delhi" -> "places:city"; keys are prefix:family:id throughout
+    static String family(String key) {
+        int first = key.indexOf(':');
+        int second = first < 0 ? -1 : key.indexOf(':', first + 1);
+        return second < 0 ? key : key.substring(0, second);
+    }
+
+    private Counter counter(String family, String result) {
+        return registry.counter("itinera.cache.lookups", "family", family, "result", result);
+    }
+}
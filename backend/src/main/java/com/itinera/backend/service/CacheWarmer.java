@@ -0,0 +1,126 @@
+package com.itinera.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.zset.Aggregate;
+import org.springframework.data.redis.connection.zset.Weights;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Keeps the head of traffic cached.
+ *
+ * Request counts live in Redis sorted sets (places:popularity, itinerary:popularity) so every
+ * instance sees the same ranking. On each tick the top cities whose places:city:* entry is missing
+ * or within the refresh-ahead window are regenerated in the background, and the top itinerary
+ * documents get their TTL extended. Scores decay every tick so yesterday's spike fades out.
+ * Configured cities are warmed at startup.
+ */
+@Service
+public class CacheWarmer {
+
+    private final StringRedisTemplate redisTemplate;
+    private final PlacesService placesService;
+    private final ItineraryService itineraryService;
+
+    @Value("${itinera.prewarm.cities:}")
+    private List<String> prewarmCities;
+
+    @Value("${itinera.prewarm.top-cities:50}")
+    private int topCities;
+
+    @Value("${itinera.prewarm.top-itineraries:200}")
+    private int topItineraries;
+
+    // Refresh once the remaining TTL drops below this
+    @Value("${itinera.prewarm.refresh-ahead-seconds:900}")
+    private long refreshAheadSeconds;
+
+    @Value("${itinera.prewarm.decay:0.9}")
+    private double decay;
+
+    // Each worker holds one model call; the queue drops work beyond one tick's worth
+    private final ThreadPoolExecutor refreshPool;
+
+    public CacheWarmer(StringRedisTemplate redisTemplate, PlacesService placesService,
+            ItineraryService itineraryService,
+            @Value("${itinera.prewarm.max-concurrent:2}") int maxConcurrent,
+            @Value("${itinera.prewarm.queue-size:64}") int queueSize) {
+        this.redisTemplate = redisTemplate;
+        this.placesService = placesService;
+        this.itineraryService = itineraryService;
+        this.refreshPool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                Thread.ofPlatform().name("cache-warmer-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        for (String city : prewarmCities) {
+            String trimmed = city.trim();
+            if (!trimmed.isEmpty() && !Boolean.TRUE.equals(redisTemplate.hasKey(PlacesService.CITY_PREFIX + trimmed)))
+                submitRefresh(trimmed);
+        }
+        System.out.println("✅ Prewarm queued for " + prewarmCities.size() + " cities");
+    }
+
+    @Scheduled(fixedDelayString = "${itinera.prewarm.interval-ms:300000}",
+            initialDelayString = "${itinera.prewarm.interval-ms:300000}")
+    public void refreshHot() {
+        try {
+            Set<String> cities = redisTemplate.opsForZSet().reverseRange(PlacesService.POPULARITY_KEY, 0, topCities - 1);
+            if (cities != null) {
+                for (String city : cities) {
+                    Long ttl = redisTemplate.getExpire(PlacesService.CITY_PREFIX + city, TimeUnit.SECONDS);
+                    // -2: missing, -1: no expiry
+                    if (ttl != null && ttl != -1 && ttl < refreshAheadSeconds)
+                        submitRefresh(city);
+                }
+            }
+
+            Set<String> documents = redisTemplate.opsForZSet().reverseRange(ItineraryService.POPULARITY_KEY, 0,
+                    topItineraries - 1);
+            if (documents != null) {
+                for (String docKey : documents) {
+                    itineraryService.touch(docKey);
+                }
+            }
+
+            decay(PlacesService.POPULARITY_KEY, topCities);
+            decay(ItineraryService.POPULARITY_KEY, topItineraries);
+        } catch (RuntimeException e) {
+            System.err.println("❌ Cache refresh tick failed: " + e.getMessage());
+        }
+    }
+
+    // Scale scores down and trim the long tail so the sets stay small
+    private void decay(String key, int keep) {
+        redisTemplate.opsForZSet().unionAndStore(key, List.of(), key, Aggregate.SUM, Weights.of(decay));
+        redisTemplate.opsForZSet().removeRange(key, 0, -(keep * 10L) - 1);
+    }
+
+    private void submitRefresh(String city) {
+        refreshPool.execute(() -> {
+            try {
+                placesService.refreshPlaces(city).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.err.println("❌ Refresh failed for " + city + ": " + e.getCause().getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshPool.shutdownNow();
+    }
+}
@@ -0,0 +1,100 @@
+package com.itinera.backend.service;
+
+import com.itinera.backend.model.Place;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Straight-line estimate of road distance and travel time, used when OSRM is unavailable
+ * (AlgorithmService keeps its own instance as the degraded-mode matrix) or selected outright
+ * with {@code routing.provider=haversine} for offline runs.
+ *
+ * The whole table is computed in one batch: every place is turned into a unit vector once
+ * (one sin/cos per coordinate instead of per pair), and the inner loop over destinations is
+ * plain multiply-adds over flat primitive arrays, which the JIT vectorizes. Great-circle
+ * distance then follows from the chord length, scaled by a detour factor for the street grid.
+ */
+@Service
+@ConditionalOnProperty(name = "routing.provider", havingValue = "haversine")
+public class HaversineMatrixProvider implements RoutingMatrixProvider {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+
+    private final double detourFactor;
+    private final double metersPerSecond;
+
+    public HaversineMatrixProvider(@Value("${routing.haversine.detour-factor:1.3}") double detourFactor,
+            @Value("${routing.haversine.speed-kmh:25}") double speedKmh) {
+        this.detourFactor = detourFactor;
+        this.metersPerSecond = speedKmh / 3.6;
+    }
+
+    /**
+     * Full n×n estimate for the given places.
+     */
+    public MatrixResult matrix(List<Place> places) {
+        int n = places.size();
+        int[] all = new int[n];
+        for (int i = 0; i < n; i++)
+            all[i] = i;
+        MatrixResult matrix = MatrixResult.allocate(n, n, false);
+        table(places, all, all, matrix);
+        return matrix;
+    }
+
+    @Override
+    public String source() {
+        return "haversine:" + detourFactor + "," + metersPerSecond;
+    }
+
+    @Override
+    public void table(List<Place> places, int[] rows, int[] cols, MatrixResult target) {
+        int n = places.size();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] z = new double[n];
+        for (int i = 0; i < n; i++) {
+            Place p = places.get(i);
+            double lat = Math.toRadians(p.getLatitude());
+            double lon = Math.toRadians(p.getLongitude());
+            double cosLat = Math.cos(lat);
+            x[i] = cosLat * Math.cos(lon);
+            y[i] = cosLat * Math.sin(lon);
+            z[i] = Math.sin(lat);
+        }
+
+        // Destinations gathered into contiguous arrays so the inner loop is a straight stream
+        int m = cols.length;
+        double[] cx = new double[m];
+        double[] cy = new double[m];
+        double[] cz = new double[m];
+        for (int b = 0; b < m; b++) {
+            cx[b] = x[cols[b]];
+            cy[b] = y[cols[b]];
+            cz[b] = z[cols[b]];
+        }
+
+        double[] chord = new double[m];
+        double scale = 2 * EARTH_RADIUS_METERS * detourFactor;
+        for (int i : rows) {
+            double xi = x[i], yi = y[i], zi = z[i];
+            for (int b = 0; b < m; b++) {
+                double dx = xi - cx[b], dy = yi - cy[b], dz = zi - cz[b];
+                chord[b] = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            }
+            for (int b = 0; b < m; b++) {
+                // Central angle = 2·asin(chord / 2) on the unit sphere
+                double meters = scale * Math.asin(Math.min(1, chord[b] * 0.5));
+                target.set(i, cols[b], meters, meters / metersPerSecond);
+            }
+        }
+    }
+
+    @Override
+    public boolean isRemote() {
+        return false;
+    }
+}
@@ -1,108 +1,257 @@
 package com.itinera.backend.service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.*;
-import okhttp3.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.itinera.backend.model.ItineraryRequest;
+import com.itinera.backend.model.Place;
+import com.itinera.backend.util.ItineraryDayParser;
+import com.itinera.backend.util.ItineraryKeys;
 import com.itinera.backend.util.PromptBuilder;
 
+/**
+ * Generated itineraries are cached by content, not by city: the whole document under the hash of
+ * the request (itinerary:doc:*), and each day's schedule under the hash of that day's cluster
+ * (itinerary:day:*), both as pointers into the {@link PayloadStore}. A request whose days were
+ * all generated before, in any trip, costs no model call; otherwise only the missing days are
+ * sent to the model. The city parameter is kept for API compatibility but no longer affects
+ * caching.
+ */
 @Service
 public class ItineraryService {
 
-    @Value("${openrouter.api.key}")
-    private String apiKey;
+    private static final String DOC_PREFIX = "itinerary:doc:";
+    private static final String DAY_PREFIX = "itinerary:day:";
+    private static final String SESSION_PREFIX = "itinerary:session:";
+    private static final Duration SESSION_TTL = Duration.ofHours(1);
 
-    private static final String API_URL = "https://openrouter.ai/api/v1/chat/completions";
-    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    // Hit count per document key, read by CacheWarmer to extend hot documents' TTL
+    static final String POPULARITY_KEY = "itinerary:popularity";
+
+    @Value("${itinera.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    // Content-addressed entries never go stale, so they can outlive sessions
+    @Value("${itinera.itinerary-cache.ttl-hours:24}")
+    private long cacheTtlHours;
 
     private final StringRedisTemplate redisTemplate;
+    private final LlmGateway llmGateway;
+    private final PayloadStore payloadStore;
+    private final CacheMetrics cacheMetrics;
 
-    public ItineraryService(StringRedisTemplate redisTemplate) {
+    public ItineraryService(StringRedisTemplate redisTemplate, LlmGateway llmGateway, PayloadStore payloadStore,
+            CacheMetrics cacheMetrics) {
         this.redisTemplate = redisTemplate;
+        this.llmGateway = llmGateway;
+        this.payloadStore = payloadStore;
+        this.cacheMetrics = cacheMetrics;
+    }
+
+    // What the caches already hold for one request
+    private static final class Lookup {
+        final List<List<Place>> clusters;
+        final String docKey;
+        final List<String> dayKeys = new ArrayList<>();
+        final String[] days; // cached day blocks, null where still missing
+        final List<Integer> missing = new ArrayList<>();
+        String document;
+
+        Lookup(ItineraryRequest data) {
+            this.clusters = data.getOptimizedItineraries() == null ? List.of() : data.getOptimizedItineraries();
+            this.docKey = DOC_PREFIX + ItineraryKeys.itinerary(data);
+            this.days = new String[clusters.size()];
+        }
     }
 
-    public String generateItinerary(String city, ItineraryRequest data) {
+    // Completes on the gateway's HTTP threads; the caller's thread only does the cache lookup
+    public CompletableFuture<String> generateItinerary(String city, ItineraryRequest data) {
         try {
-            String prompt = PromptBuilder.buildPrompt(data);
-
-            // Cached response by city
-            String existing = redisTemplate.opsForValue().get("itinerary:city:" + city);
-            if (existing != null) {
-                String sessionId = UUID.randomUUID().toString();
-                redisTemplate.opsForValue().set("itinerary:session:" + sessionId, existing, 1, TimeUnit.HOURS);
-                return sessionId;
+            Lookup lookup = lookup(data);
+            if (lookup.document != null) {
+                return CompletableFuture.completedFuture(newSession(lookup.document));
+            }
+            if (lookup.missing.isEmpty()) {
+                return CompletableFuture.completedFuture(newSession(merge(lookup, "")));
             }
 
-            OkHttpClient client = new OkHttpClient();
+            return llmGateway.complete(missingPrompt(lookup), "Itinerary Service")
+                    .thenApply(content -> newSession(merge(lookup, content)))
+                    .exceptionally(ItineraryService::errorMessage);
 
-            // Build messages
-            JSONObject message = new JSONObject()
-                    .put("role", "user")
-                    .put("content", prompt);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(errorMessage(e));
+        }
+    }
 
-            // Build request body
-            JSONObject body = new JSONObject()
-                    .put("model", "openai/gpt-oss-20b:free")
-                    .put("messages", new JSONArray().put(message));
+    /**
+     * Streams generation over SSE: a "session" event first, then "token" events as the model
+     * writes and a "day" event (id = day index) for each day block as soon as it is available,
+     * then "done". Cached days are sent straight away. The full document is cached under the
+     * same session id once the model finishes.
+     */
+    public SseEmitter streamItinerary(String city, ItineraryRequest data) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        String sessionId = UUID.randomUUID().toString();
 
-            RequestBody requestBody = RequestBody.create(body.toString(), JSON);
+        try {
+            send(emitter, null, "session", sessionId);
 
-            Request request = new Request.Builder()
-                    .url(API_URL)
-                    .addHeader("Authorization", "Bearer " + apiKey)
-                    .addHeader("HTTP-Referer", "http://localhost:8080")
-                    .addHeader("X-Title", "Itinerary Service")
-                    .post(requestBody)
-                    .build();
+            Lookup lookup = lookup(data);
+            if (lookup.document != null) {
+                List<String> days = new ItineraryDayParser().feed(lookup.document);
+                for (int i = 0; i < days.size(); i++) {
+                    send(emitter, i, "day", days.get(i));
+                }
+                finish(emitter, sessionId, lookup.document);
+                return emitter;
+            }
 
-            Response response = client.newCall(request).execute();
-            String jsonResponse = response.body().string();
+            for (int i = 0; i < lookup.days.length; i++) {
+                if (lookup.days[i] != null)
+                    send(emitter, i, "day", lookup.days[i]);
+            }
+            if (lookup.missing.isEmpty()) {
+                finish(emitter, sessionId, merge(lookup, ""));
+                return emitter;
+            }
 
-            JSONObject json = new JSONObject(jsonResponse);
+            ItineraryDayParser parser = new ItineraryDayParser();
+            int[] streamed = { 0 };
+            CompletableFuture<String> generation = llmGateway.stream(missingPrompt(lookup), "Itinerary Service",
+                    delta -> {
+                        send(emitter, null, "token", delta);
+                        for (String day : parser.feed(delta)) {
+                            int k = streamed[0]++;
+                            send(emitter, k < lookup.missing.size() ? lookup.missing.get(k) : null, "day", day);
+                        }
+                    });
 
-            // Error handling
-            if (json.has("error")) {
-                return "Error from OpenRouter: " + json.getJSONObject("error").optString("message", "Unknown error");
-            }
+            // Client gone or timed out: stop paying for tokens nobody reads
+            emitter.onTimeout(() -> generation.cancel(true));
+            emitter.onError(e -> generation.cancel(true));
 
-            if (!json.has("choices")) {
-                return "Error: 'choices' missing → " + jsonResponse;
-            }
+            generation.whenComplete((content, error) -> {
+                try {
+                    if (error != null)
+                        throw error;
+                    finish(emitter, sessionId, merge(lookup, content));
+                } catch (Throwable e) {
+                    try {
+                        send(emitter, null, "error", errorMessage(e));
+                    } catch (RuntimeException ignored) {
+                        // client already disconnected
+                    }
+                    emitter.complete();
+                }
+            });
 
-            JSONArray choices = json.getJSONArray("choices");
-            if (choices.isEmpty()) {
-                return "Error: No choices returned.";
-            }
+        } catch (Exception e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
 
-            JSONObject messageObj = choices.getJSONObject(0).getJSONObject("message");
+    public String getItineraryBySession(String sessionId) {
+        return payloadStore.resolveSession(SESSION_PREFIX, sessionId);
+    }
 
-            String content = messageObj.optString("content", null);
-            if (content == null) {
-                return "Error: No content returned from model.";
-            }
+    private Lookup lookup(ItineraryRequest data) {
+        Lookup lookup = new Lookup(data);
+        lookup.document = payloadStore.resolve(lookup.docKey);
+        redisTemplate.opsForZSet().incrementScore(POPULARITY_KEY, lookup.docKey, 1);
+        if (lookup.document != null) {
+            cacheMetrics.hit("itinerary:doc");
+            return lookup;
+        }
+        cacheMetrics.miss("itinerary:doc");
+        if (lookup.clusters.isEmpty())
+            return lookup;
 
-            String sessionId = UUID.randomUUID().toString();
+        for (List<Place> cluster : lookup.clusters) {
+            lookup.dayKeys.add(DAY_PREFIX + ItineraryKeys.day(cluster));
+        }
+        List<String> cached = payloadStore.resolveAll(lookup.dayKeys);
+        for (int i = 0; i < lookup.days.length; i++) {
+            lookup.days[i] = cached.get(i);
+            if (lookup.days[i] == null)
+                lookup.missing.add(i);
+        }
+        cacheMetrics.record("itinerary:day", lookup.days.length - lookup.missing.size(), lookup.missing.size());
+        return lookup;
+    }
 
-            // Cache data
-            redisTemplate.opsForValue().set("itinerary:city:" + city, content, 1, TimeUnit.HOURS);
-            redisTemplate.opsForValue().set("itinerary:session:" + sessionId, content, 1, TimeUnit.HOURS);
+    // Built only on a miss, and only for the clusters nobody has generated yet
+    private String missingPrompt(Lookup lookup) {
+        ItineraryRequest missing = new ItineraryRequest();
+        missing.setOptimizedItineraries(lookup.missing.stream().map(lookup.clusters::get).toList());
+        return PromptBuilder.buildPrompt(missing);
+    }
 
-            return sessionId;
+    // Slots generated day blocks into the missing positions and caches the days and the document
+    private String merge(Lookup lookup, String generated) {
+        List<String> fresh = new ItineraryDayParser().feed(generated);
+        if (fresh.size() != lookup.missing.size()) {
+            if (lookup.missing.size() != lookup.days.length)
+                throw new IllegalStateException(
+                        "Model returned " + fresh.size() + " days for " + lookup.missing.size() + " clusters");
+            // Whole trip generated but not day-aligned: keep the document, skip the day cache
+            cache(lookup.docKey, generated);
+            return generated;
+        }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "Error: " + e.getMessage();
+        for (int k = 0; k < fresh.size(); k++) {
+            int day = lookup.missing.get(k);
+            lookup.days[day] = fresh.get(k);
+            cache(lookup.dayKeys.get(day), fresh.get(k));
         }
+        String document = "{\"itinerary\":[" + String.join(",", lookup.days) + "]}";
+        cache(lookup.docKey, document);
+        return document;
     }
 
-    public String getItineraryBySession(String sessionId) {
-        return redisTemplate.opsForValue().get("itinerary:session:" + sessionId);
+    private void cache(String key, String value) {
+        payloadStore.writePointer(key, value, Duration.ofHours(cacheTtlHours));
+    }
+
+    // Content-addressed documents never go stale; keeping a hot one is just a TTL bump
+    void touch(String docKey) {
+        payloadStore.touch(docKey, Duration.ofHours(cacheTtlHours));
+    }
+
+    private String newSession(String document) {
+        return payloadStore.createSession(SESSION_PREFIX, document, SESSION_TTL);
+    }
+
+    private void finish(SseEmitter emitter, String sessionId, String document) {
+        payloadStore.writeSession(SESSION_PREFIX, sessionId, document, SESSION_TTL);
+        send(emitter, null, "done", sessionId);
+        emitter.complete();
+    }
+
+    private static void send(SseEmitter emitter, Integer id, String event, String data) {
+        try {
+            SseEmitter.SseEventBuilder builder = SseEmitter.event().name(event).data(data);
+            if (id != null)
+                builder.id(String.valueOf(id));
+            emitter.send(builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String errorMessage(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        cause.printStackTrace();
+        return "Error: " + cause.getMessage();
     }
 }
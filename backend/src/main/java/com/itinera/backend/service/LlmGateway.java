@@ -0,0 +1,273 @@
+package com.itinera.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import okhttp3.*;
+import okio.BufferedSource;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Single entry point for OpenRouter chat completions.
+ *
+ * One OkHttpClient is shared by every caller: one connection pool (TLS sessions are reused and
+ * HTTP/2 multiplexes concurrent completions over one connection), one dispatcher with a hard cap
+ * on in-flight calls. Calls are enqueued and completed on the dispatcher's threads, so servlet
+ * threads never wait on a model.
+ */
+@Service
+public class LlmGateway {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final MeterRegistry registry;
+    private final ObservationRegistry observationRegistry;
+    private final OkHttpClient client;
+    private final String apiUrl;
+    private final String apiKey;
+    private final String model;
+
+    public LlmGateway(MeterRegistry registry, ObservationRegistry observationRegistry, @Value("${openrouter.api.key}") String apiKey,
+            @Value("${openrouter.api.url:https://openrouter.ai/api/v1/chat/completions}") String apiUrl,
+            @Value("${openrouter.model:openai/gpt-oss-20b:free}") String model,
+            @Value("${openrouter.max-concurrent-calls:32}") int maxConcurrentCalls,
+            @Value("${openrouter.connect-timeout-seconds:10}") long connectTimeoutSeconds,
+            @Value("${openrouter.read-timeout-seconds:30}") long readTimeoutSeconds,
+            @Value("${openrouter.call-timeout-seconds:90}") long callTimeoutSeconds) {
+        this.registry = registry;
+        this.observationRegistry = observationRegistry;
+        this.apiKey = apiKey;
+        this.apiUrl = apiUrl;
+        this.model = model;
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxConcurrentCalls);
+        dispatcher.setMaxRequestsPerHost(maxConcurrentCalls);
+
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(8, 5, TimeUnit.MINUTES))
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(connectTimeoutSeconds, TimeUnit.SECONDS)
+                .readTimeout(readTimeoutSeconds, TimeUnit.SECONDS)
+                .callTimeout(callTimeoutSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Sends one user prompt and completes with the model's message content. Fails with an
+     * IOException for transport errors and an IllegalStateException when OpenRouter answers
+     * without usable content. Cancelling the future cancels the HTTP call.
+     */
+    public CompletableFuture<String> complete(String prompt, String title) {
+        Call call = client.newCall(chatRequest(prompt, title, false));
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Observation observation = requestObservation(title, false);
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    String body = response.body().string();
+                    JSONObject json = new JSONObject(body);
+                    recordUsage(json.optJSONObject("usage"), title);
+                    result.complete(extractContent(json, body));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+
+        result.whenComplete((content, error) -> {
+            if (result.isCancelled())
+                call.cancel();
+            stop(observation, error);
+        });
+        return result;
+    }
+
+    /**
+     * Requests a streamed completion and hands each content delta to {@code onDelta} as it
+     * arrives, on the HTTP thread. Completes with the full content once the model sends [DONE].
+     */
+    public CompletableFuture<String> stream(String prompt, String title, Consumer<String> onDelta) {
+        Call call = client.newCall(chatRequest(prompt, title, true));
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Observation observation = requestObservation(title, true);
+        long started = System.nanoTime();
+        Timer firstToken = registry.timer("openrouter.first.token", "title", title);
+        Consumer<String> timedDelta = new Consumer<>() {
+            private boolean first = true;
+
+            @Override
+            public void accept(String piece) {
+                if (first) {
+                    first = false;
+                    firstToken.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+                onDelta.accept(piece);
+            }
+        };
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    if (!response.isSuccessful()) {
+                        // Non-streamed error body; extractContent turns it into an exception
+                        result.complete(extractContent(response.body().string()));
+                        return;
+                    }
+                    result.complete(readEvents(response.body().source(), timedDelta,
+                            usage -> recordUsage(usage, title), result));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+
+        result.whenComplete((content, error) -> {
+            if (result.isCancelled())
+                call.cancel();
+            stop(observation, error);
+        });
+        return result;
+    }
+
+    // OpenAI-style event stream: "data: {json}" lines, ": comment" keep-alives, "data: [DONE]"
+    static String readEvents(BufferedSource source, Consumer<String> onDelta, Consumer<JSONObject> onUsage,
+            CompletableFuture<?> cancelled) throws IOException {
+        StringBuilder content = new StringBuilder();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (cancelled.isDone())
+                break;
+            if (!line.startsWith("data:"))
+                continue;
+
+            String data = line.substring(5).trim();
+            if (data.equals("[DONE]"))
+                break;
+
+            JSONObject event = new JSONObject(data);
+            if (event.has("error")) {
+                throw new IllegalStateException(
+                        "OpenRouter error: " + event.getJSONObject("error").optString("message", "Unknown error"));
+            }
+            // Token usage arrives on the last chunk
+            if (event.optJSONObject("usage") != null)
+                onUsage.accept(event.getJSONObject("usage"));
+            JSONArray choices = event.optJSONArray("choices");
+            if (choices == null || choices.isEmpty())
+                continue;
+            JSONObject delta = choices.getJSONObject(0).optJSONObject("delta");
+            if (delta == null)
+                continue;
+            String piece = delta.optString("content", "");
+            if (!piece.isEmpty()) {
+                content.append(piece);
+                onDelta.accept(piece);
+            }
+        }
+        if (content.isEmpty()) {
+            throw new IllegalStateException("No content returned from model.");
+        }
+        return content.toString();
+    }
+
+    Request chatRequest(String prompt, String title, boolean stream) {
+        JSONObject message = new JSONObject()
+                .put("role", "user")
+                .put("content", prompt);
+
+        JSONObject body = new JSONObject()
+                .put("model", model)
+                .put("messages", new JSONArray().put(message));
+        if (stream)
+            body.put("stream", true);
+
+        return new Request.Builder()
+                .url(apiUrl)
+                .addHeader("Authorization", "Bearer " + apiKey)
+                .addHeader("HTTP-Referer", "http://localhost:8080")
+                .addHeader("X-Title", title)
+                .post(RequestBody.create(body.toString(), JSON))
+                .build();
+    }
+
+    static String extractContent(String jsonResponse) {
+        return extractContent(new JSONObject(jsonResponse), jsonResponse);
+    }
+
+    static String extractContent(JSONObject json, String jsonResponse) {
+        if (json.has("error")) {
+            throw new IllegalStateException(
+                    "OpenRouter error: " + json.getJSONObject("error").optString("message", "Unknown error"));
+        }
+        if (!json.has("choices")) {
+            throw new IllegalStateException("'choices' missing → " + jsonResponse);
+        }
+
+        JSONArray choices = json.getJSONArray("choices");
+        if (choices.isEmpty()) {
+            throw new IllegalStateException("No choices returned.");
+        }
+
+        String content = choices.getJSONObject(0).getJSONObject("message").optString("content", null);
+        if (content == null) {
+            throw new IllegalStateException("No content returned from model.");
+        }
+        return content;
+    }
+
+    private void recordUsage(JSONObject usage, String title) {
+        if (usage == null)
+            return;
+        registry.counter("openrouter.tokens", "title", title, "type", "prompt")
+                .increment(usage.optLong("prompt_tokens", 0));
+        registry.counter("openrouter.tokens", "title", title, "type", "completion")
+                .increment(usage.optLong("completion_tokens", 0));
+    }
+
+    // Timed as openrouter.request, and a child span of the HTTP request when tracing is on
+    private Observation requestObservation(String title, boolean stream) {
+        return Observation.createNotStarted("openrouter.request", observationRegistry)
+                .lowCardinalityKeyValue("title", title)
+                .lowCardinalityKeyValue("stream", String.valueOf(stream))
+                .start();
+    }
+
+    private static void stop(Observation observation, Throwable error) {
+        if (error != null && !(error instanceof CancellationException))
+            observation.error(error);
+        observation.stop();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+}
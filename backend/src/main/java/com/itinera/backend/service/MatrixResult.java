@@ -0,0 +1,121 @@
+package com.itinera.backend.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Distance (meters) and duration (seconds) matrix stored as two flat row-major float buffers.
+ * Float precision is plenty for road distances and travel times, halves the footprint of
+ * double[][] and keeps each row contiguous for the solver's inner loops.
+ *
+ * Large cached matrices can live off-heap ({@link #allocate(int, int, boolean)}) so they do not
+ * add to GC pause times. Unknown / unreachable cells are {@code +Infinity}.
+ */
+public abstract class MatrixResult {
+
+    protected final int rows;
+    protected final int cols;
+
+    protected MatrixResult(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public static MatrixResult allocate(int rows, int cols, boolean offHeap) {
+        return offHeap ? new Direct(rows, cols) : new Heap(rows, cols);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public abstract float distance(int i, int j);
+
+    public abstract float duration(int i, int j);
+
+    public abstract void set(int i, int j, double distanceMeters, double durationSeconds);
+
+    public abstract boolean isOffHeap();
+
+    // Bytes held by the two buffers (plus array headers for the heap variant)
+    public abstract long footprintBytes();
+
+    private static final class Heap extends MatrixResult {
+        private final float[] distances;
+        private final float[] durations;
+
+        Heap(int rows, int cols) {
+            super(rows, cols);
+            this.distances = new float[rows * cols];
+            this.durations = new float[rows * cols];
+        }
+
+        @Override
+        public float distance(int i, int j) {
+            return distances[i * cols + j];
+        }
+
+        @Override
+        public float duration(int i, int j) {
+            return durations[i * cols + j];
+        }
+
+        @Override
+        public void set(int i, int j, double distanceMeters, double durationSeconds) {
+            distances[i * cols + j] = (float) distanceMeters;
+            durations[i * cols + j] = (float) durationSeconds;
+        }
+
+        @Override
+        public boolean isOffHeap() {
+            return false;
+        }
+
+        @Override
+        public long footprintBytes() {
+            return 2 * (16 + 4L * rows * cols);
+        }
+    }
+
+    private static final class Direct extends MatrixResult {
+        private final FloatBuffer distances;
+        private final FloatBuffer durations;
+
+        Direct(int rows, int cols) {
+            super(rows, cols);
+            this.distances = ByteBuffer.allocateDirect(4 * rows * cols).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            this.durations = ByteBuffer.allocateDirect(4 * rows * cols).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+
+        @Override
+        public float distance(int i, int j) {
+            return distances.get(i * cols + j);
+        }
+
+        @Override
+        public float duration(int i, int j) {
+            return durations.get(i * cols + j);
+        }
+
+        @Override
+        public void set(int i, int j, double distanceMeters, double durationSeconds) {
+            distances.put(i * cols + j, (float) distanceMeters);
+            durations.put(i * cols + j, (float) durationSeconds);
+        }
+
+        @Override
+        public boolean isOffHeap() {
+            return true;
+        }
+
+        @Override
+        public long footprintBytes() {
+            return 8L * rows * cols;
+        }
+    }
+}
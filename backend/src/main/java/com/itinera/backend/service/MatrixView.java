@@ -0,0 +1,36 @@
+package com.itinera.backend.service;
+
+/**
+ * Index-mapped window onto a larger matrix: row/column i of the view is row/column
+ * {@code index[i]} of the base matrix. Nothing is copied or boxed; reads go straight to the
+ * base matrix's flat buffers.
+ */
+public final class MatrixView {
+    private final MatrixResult base;
+    private final int[] index;
+
+    public MatrixView(MatrixResult base, int[] index) {
+        this.base = base;
+        this.index = index;
+    }
+
+    /** Identity view over the whole matrix. */
+    public static MatrixView of(MatrixResult base) {
+        int[] index = new int[base.rows()];
+        for (int i = 0; i < index.length; i++)
+            index[i] = i;
+        return new MatrixView(base, index);
+    }
+
+    public int size() {
+        return index.length;
+    }
+
+    public double distance(int i, int j) {
+        return base.distance(index[i], index[j]);
+    }
+
+    public double duration(int i, int j) {
+        return base.duration(index[i], index[j]);
+    }
+}
@@ -0,0 +1,167 @@
+package com.itinera.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itinera.backend.model.Place;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.util.*;
+
+/**
+ * OSRM /table client, using the public router.project-osrm.org endpoint by default.
+ * - No API key
+ * - Use for dev/testing or light production with heavy caching
+ */
+@Service
+@ConditionalOnProperty(name = "routing.provider", havingValue = "osrm", matchIfMissing = true)
+public class OsrmHttpMatrixProvider implements RoutingMatrixProvider {
+
+    private final RestTemplate rest = new RestTemplate();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Counter osrmCalls;
+    private final Timer osrmLatency;
+
+    @Value("${osrm.base-url:http://router.project-osrm.org}")
+    private String baseUrl;
+
+    @Value("${osrm.profile:driving}")
+    private String profile;
+
+    // Bumped when the server's map data is rebuilt, like the pair store's keys
+    @Value("${osrm.dataset:}")
+    private String dataset;
+
+    // Max coordinates per /table request (the public server rejects more than 100)
+    @Value("${osrm.table.max-locations:100}")
+    private int maxTableLocations;
+
+    public OsrmHttpMatrixProvider(MeterRegistry registry) {
+        this.osrmCalls = registry.counter("osrm.calls");
+        this.osrmLatency = registry.timer("osrm.request");
+    }
+
+    @Override
+    public String source() {
+        return "osrm:" + profile + "@" + baseUrl + (dataset.isEmpty() ? "" : "#" + dataset);
+    }
+
+    /**
+     * A single request covers the cells rows × cols when the involved coordinates fit the
+     * server's table limit; otherwise the rows and columns are
+     * split into blocks and each block pair is fetched with OSRM's sources/destinations
+     * parameters, each request carrying at most maxTableLocations coordinates.
+     */
+    @Override
+    public void table(List<Place> places, int[] rows, int[] cols, MatrixResult matrix) throws Exception {
+        int block = distinctCount(rows, cols) <= maxTableLocations
+                ? Math.max(rows.length, cols.length)
+                : Math.max(1, maxTableLocations / 2);
+
+        for (int r = 0; r < rows.length; r += block) {
+            int[] rowBlock = Arrays.copyOfRange(rows, r, Math.min(rows.length, r + block));
+            for (int c = 0; c < cols.length; c += block) {
+                int[] colBlock = Arrays.copyOfRange(cols, c, Math.min(cols.length, c + block));
+                fetchBlock(places, rowBlock, colBlock, matrix);
+            }
+        }
+    }
+
+    private void fetchBlock(List<Place> places, int[] rows, int[] cols, MatrixResult matrix) throws Exception {
+        // Each place is sent once even when it is both a source and a destination
+        Map<Integer, Integer> position = new LinkedHashMap<>();
+        for (int i : rows)
+            position.putIfAbsent(i, position.size());
+        for (int j : cols)
+            position.putIfAbsent(j, position.size());
+
+        List<Place> tile = new ArrayList<>();
+        for (int i : position.keySet())
+            tile.add(places.get(i));
+
+        boolean full = rows.length == tile.size() && cols.length == tile.size();
+        String sources = full ? null : joinPositions(rows, position);
+        String destinations = full ? null : joinPositions(cols, position);
+
+        MatrixResult part = fetchTable(OsrmMatrixService.joinCoordinates(tile), sources, destinations,
+                rows.length, cols.length);
+        for (int a = 0; a < rows.length; a++) {
+            for (int b = 0; b < cols.length; b++) {
+                matrix.set(rows[a], cols[b], part.distance(a, b), part.duration(a, b));
+            }
+        }
+    }
+
+    private MatrixResult fetchTable(String coords, String sources, String destinations, int rows, int cols)
+            throws Exception {
+        // Coordinates only contain digits, '.', '-', ',' and ';', all legal in a URL path
+        StringBuilder url = new StringBuilder(baseUrl).append("/table/v1/").append(profile).append('/')
+                .append(coords).append("?annotations=distance,duration");
+        if (sources != null)
+            url.append("&sources=").append(sources).append("&destinations=").append(destinations);
+
+        osrmCalls.increment();
+        ResponseEntity<String> resp = osrmLatency
+                .recordCallable(() -> rest.getForEntity(URI.create(url.toString()), String.class));
+        if (!resp.getStatusCode().is2xxSuccessful()) {
+            throw new RuntimeException("OSRM error: " + resp.getStatusCode().value());
+        }
+        return parseTable(resp.getBody(), rows, cols);
+    }
+
+    MatrixResult parseTable(String body, int rows, int cols) throws Exception {
+        JsonNode root = mapper.readTree(body);
+
+        // OSRM returns "distances" in meters, "durations" in seconds (or null on some
+        // combos)
+        JsonNode distancesNode = root.get("distances");
+        JsonNode durationsNode = root.get("durations");
+
+        MatrixResult matrix = MatrixResult.allocate(rows, cols, false);
+
+        if (distancesNode == null || distancesNode.size() != rows) {
+            throw new RuntimeException("OSRM response missing distances or size mismatch");
+        }
+
+        for (int i = 0; i < rows; i++) {
+            JsonNode rowDist = distancesNode.get(i);
+            JsonNode rowDur = durationsNode != null ? durationsNode.get(i) : null;
+            for (int j = 0; j < cols; j++) {
+                double distance = rowDist.get(j).asDouble(Double.POSITIVE_INFINITY);
+                double duration = rowDur != null && !rowDur.get(j).isNull()
+                        ? rowDur.get(j).asDouble(Double.POSITIVE_INFINITY)
+                        : Double.POSITIVE_INFINITY;
+                matrix.set(i, j, distance, duration);
+            }
+        }
+
+        return matrix;
+    }
+
+    // Positions of the given places inside the request, "3;0;5"
+    private String joinPositions(int[] indexes, Map<Integer, Integer> position) {
+        StringBuilder sb = new StringBuilder();
+        for (int k = 0; k < indexes.length; k++) {
+            if (k > 0)
+                sb.append(';');
+            sb.append(position.get(indexes[k]));
+        }
+        return sb.toString();
+    }
+
+    private int distinctCount(int[] rows, int[] cols) {
+        Set<Integer> all = new HashSet<>();
+        for (int i : rows)
+            all.add(i);
+        for (int j : cols)
+            all.add(j);
+        return all.size();
+    }
+}
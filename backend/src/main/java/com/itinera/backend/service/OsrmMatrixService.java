@@ -1,106 +1,244 @@
 package com.itinera.backend.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.itinera.backend.model.Place;
-import org.springframework.http.ResponseEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
- * Simple OSRM matrix client using the public router.project-osrm.org endpoint.
- * - No API key
- * - Use for dev/testing or light production with heavy caching
+ * Distance/duration matrices for AlgorithmService, in front of a {@link RoutingMatrixProvider}
+ * (the public OSRM server by default, or the in-process road graph).
+ * - Whole matrices are cached in memory, with concurrent misses sharing one request
+ * - For remote providers, pairs already in the {@link TravelTimeStore} are never requested again
  */
 @Service
 public class OsrmMatrixService {
 
-    private static final String OSRM_TABLE_URL = "http://router.project-osrm.org/table/v1/driving/%s?annotations=distance,duration";
-    private final RestTemplate rest = new RestTemplate();
-    private final ObjectMapper mapper = new ObjectMapper();
-
-    // Simple LRU cache: key = joined coords, value = MatrixResult
-    private final Map<String, MatrixResult> cache = Collections.synchronizedMap(
-            new LinkedHashMap<String, MatrixResult>(100, 0.75f, true) {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry<String, MatrixResult> eldest) {
-                    return size() > 200; // keep last 200 results
-                }
-            });
-
-    public static class MatrixResult {
-        public final double[][] distancesMeters; // [i][j]
-        public final double[][] durationsSeconds; // [i][j]
-
-        public MatrixResult(double[][] distancesMeters, double[][] durationsSeconds) {
-            this.distancesMeters = distancesMeters;
-            this.durationsSeconds = durationsSeconds;
-        }
+    private final RoutingMatrixProvider provider;
+    private final TravelTimeStore travelTimeStore;
+
+    // Matrices with at least this many locations are kept off-heap; 0 disables off-heap storage
+    @Value("${osrm.matrix.off-heap-min-locations:0}")
+    private int offHeapMinLocations;
+
+    // Whole-matrix cache: key = joined coords. Lock-free reads, bounded by matrix bytes rather
+    // than entry count, and holding futures so concurrent misses share one in-flight request.
+    private final AsyncCache<String, MatrixResult> cache;
+
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Timer loadTimer;
+
+    public OsrmMatrixService(RoutingMatrixProvider provider, TravelTimeStore travelTimeStore, MeterRegistry registry,
+            @Value("${osrm.matrix-cache.max-bytes:67108864}") long maxCacheBytes,
+            @Value("${osrm.matrix-cache.ttl-minutes:60}") long cacheTtlMinutes) {
+        this.provider = provider;
+        this.travelTimeStore = travelTimeStore;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxCacheBytes)
+                .weigher((String coords, MatrixResult m) -> (int) Math.min(Integer.MAX_VALUE, m.footprintBytes()))
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .buildAsync();
+        this.cacheHits = registry.counter("osrm.matrix.cache", "result", "hit");
+        this.cacheMisses = registry.counter("osrm.matrix.cache", "result", "miss");
+        this.loadTimer = registry.timer("osrm.matrix.load", "provider", provider.getClass().getSimpleName());
     }
 
     /**
      * Get distance & duration matrices for the given list of places.
      * Returns distances in meters and durations in seconds.
+     * AlgorithmService asks once per trip (hotel + every place) and slices days out of the
+     * result with {@link MatrixView}s.
      */
     public MatrixResult getMatrix(List<Place> places) throws Exception {
         if (places == null || places.isEmpty())
             throw new IllegalArgumentException("places empty");
 
-        // Build coordinate list "lon,lat;lon,lat;..."
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < places.size(); i++) {
-            Place p = places.get(i);
-            if (i > 0)
-                sb.append(';');
-            // OSRM expects lon,lat
-            sb.append(p.getLongitude()).append(',').append(p.getLatitude());
+        String coords = joinCoordinates(places);
+
+        // Check cache; the first caller for a key loads it, everyone else waits on the same future
+        CompletableFuture<MatrixResult> mine = new CompletableFuture<>();
+        CompletableFuture<MatrixResult> existing = cache.asMap().putIfAbsent(coords, mine);
+        if (existing != null) {
+            cacheHits.increment();
+            return await(existing);
         }
-        String coords = sb.toString();
 
-        // Check cache
-        MatrixResult cached = cache.get(coords);
-        if (cached != null)
-            return cached;
+        cacheMisses.increment();
+        try {
+            mine.complete(loadTimer.recordCallable(() -> load(places)));
+        } catch (Exception e) {
+            // Failed futures are dropped from the cache, so the next call retries
+            mine.completeExceptionally(e);
+        }
+        return await(mine);
+    }
 
-        String url = String.format(OSRM_TABLE_URL, URLEncoder.encode(coords, StandardCharsets.UTF_8.toString()));
+    /** The provider's {@link RoutingMatrixProvider#source()}. */
+    public String source() {
+        return provider.source();
+    }
 
-        ResponseEntity<String> resp = rest.getForEntity(url, String.class);
-        if (!resp.getStatusCode().is2xxSuccessful()) {
-            throw new RuntimeException("OSRM error: " + resp.getStatusCode().value());
+    /**
+     * Grows {@code base} by the stops appended after its last row. Cells between existing stops
+     * are copied; only the new rows and columns are requested, as two narrow tables.
+     */
+    public MatrixResult extend(MatrixResult base, List<Place> stops) throws Exception {
+        MatrixResult matrix = grow(base, stops.size());
+        fillAppended(provider, stops, base.rows(), matrix);
+        if (provider.isRemote()) {
+            int[] added = range(base.rows(), stops.size());
+            travelTimeStore.save(stops, added, range(0, stops.size()), matrix);
+            travelTimeStore.save(stops, range(0, base.rows()), added, matrix);
         }
+        return matrix;
+    }
 
-        JsonNode root = mapper.readTree(resp.getBody());
+    // Copy of base in the top-left corner of an n × n matrix
+    static MatrixResult grow(MatrixResult base, int n) {
+        MatrixResult matrix = MatrixResult.allocate(n, n, base.isOffHeap());
+        for (int i = 0; i < base.rows(); i++)
+            for (int j = 0; j < base.cols(); j++)
+                matrix.set(i, j, base.distance(i, j), base.duration(i, j));
+        return matrix;
+    }
 
-        // OSRM returns "distances" in meters, "durations" in seconds (or null on some
-        // combos)
-        JsonNode distancesNode = root.get("distances");
-        JsonNode durationsNode = root.get("durations");
+    // Fills rows and columns from index old on: new → every stop, then existing → new
+    static void fillAppended(RoutingMatrixProvider provider, List<Place> stops, int old, MatrixResult matrix)
+            throws Exception {
+        int[] added = range(old, stops.size());
+        provider.table(stops, added, range(0, stops.size()), matrix);
+        if (old > 0)
+            provider.table(stops, range(0, old), added, matrix);
+    }
 
-        int n = places.size();
-        double[][] distances = new double[n][n];
-        double[][] durations = new double[n][n];
+    private static int[] range(int from, int to) {
+        int[] out = new int[to - from];
+        for (int i = 0; i < out.length; i++)
+            out[i] = from + i;
+        return out;
+    }
 
-        if (distancesNode == null || distancesNode.size() != n) {
-            throw new RuntimeException("OSRM response missing distances or size mismatch");
+    private MatrixResult await(CompletableFuture<MatrixResult> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
         }
+    }
 
+    private MatrixResult load(List<Place> places) throws Exception {
+        // Assemble what we can from stored pairs, then ask the provider only for the gaps
+        int n = places.size();
+        boolean offHeap = offHeapMinLocations > 0 && n >= offHeapMinLocations;
+        MatrixResult matrix = MatrixResult.allocate(n, n, offHeap);
+        boolean[][] known = provider.isRemote() ? travelTimeStore.load(places, matrix) : unknown(n);
+
+        // Unknown cells are fetched as two narrow tables, like an appended stop: the chosen
+        // stops' rows against everyone, then everyone else against their columns
+        int[] missing = missingStops(known);
+        if (missing.length == 0) {
+            travelTimeStore.recordAvoidedCall();
+        } else {
+            int[] all = range(0, n);
+            int[] rest = others(missing, n);
+            provider.table(places, missing, all, matrix);
+            if (rest.length > 0)
+                provider.table(places, rest, missing, matrix);
+            if (provider.isRemote()) {
+                travelTimeStore.save(places, missing, all, matrix);
+                travelTimeStore.save(places, rest, missing, matrix);
+            }
+        }
+        return matrix;
+    }
+
+    private boolean[][] unknown(int n) {
+        boolean[][] known = new boolean[n][n];
+        for (int i = 0; i < n; i++)
+            known[i][i] = true;
+        return known;
+    }
+
+    /**
+     * Stops whose rows and columns together cover every unknown cell, picked greedily by how
+     * many uncovered cells each still has. One new place among cached ones costs just its own
+     * row and column; an empty pair store picks every stop, i.e. the full table.
+     */
+    static int[] missingStops(boolean[][] known) {
+        int n = known.length;
+        boolean[][] open = new boolean[n][n];
+        int[] count = new int[n]; // uncovered cells in row k plus column k
+        int remaining = 0;
         for (int i = 0; i < n; i++) {
-            JsonNode rowDist = distancesNode.get(i);
-            JsonNode rowDur = durationsNode != null ? durationsNode.get(i) : null;
             for (int j = 0; j < n; j++) {
-                distances[i][j] = rowDist.get(j).asDouble(Double.POSITIVE_INFINITY);
-                durations[i][j] = rowDur != null && !rowDur.get(j).isNull()
-                        ? rowDur.get(j).asDouble(Double.POSITIVE_INFINITY)
-                        : Double.POSITIVE_INFINITY;
+                if (!known[i][j]) {
+                    open[i][j] = true;
+                    count[i]++;
+                    count[j]++;
+                    remaining++;
+                }
+            }
+        }
+
+        int[] out = new int[n];
+        int picked = 0;
+        while (remaining > 0) {
+            int best = 0;
+            for (int k = 1; k < n; k++)
+                if (count[k] > count[best])
+                    best = k;
+            for (int j = 0; j < n; j++) {
+                if (open[best][j]) {
+                    open[best][j] = false;
+                    count[j]--;
+                    remaining--;
+                }
+                if (open[j][best]) {
+                    open[j][best] = false;
+                    count[j]--;
+                    remaining--;
+                }
             }
+            count[best] = 0;
+            out[picked++] = best;
         }
+        Arrays.sort(out, 0, picked);
+        return Arrays.copyOf(out, picked);
+    }
 
-        MatrixResult result = new MatrixResult(distances, durations);
-        cache.put(coords, result);
-        return result;
+    // 0..n-1 without the (sorted) indexes in skip
+    private static int[] others(int[] skip, int n) {
+        int[] out = new int[n - skip.length];
+        int k = 0, s = 0;
+        for (int i = 0; i < n; i++) {
+            if (s < skip.length && skip[s] == i)
+                s++;
+            else
+                out[k++] = i;
+        }
+        return out;
+    }
+
+    // Build coordinate list "lon,lat;lon,lat;..."
+    static String joinCoordinates(List<Place> places) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < places.size(); i++) {
+            Place p = places.get(i);
+            if (i > 0)
+                sb.append(';');
+            // OSRM expects lon,lat
+            sb.append(p.getLongitude()).append(',').append(p.getLatitude());
+        }
+        return sb.toString();
     }
 }
@@ -0,0 +1,276 @@
+package com.itinera.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Content-addressed payloads with lightweight session pointers.
+ *
+ * A payload is stored once under payload:&lt;sha256&gt;, compressed when large; session keys and
+ * cache keys (itinerary:doc:*, itinerary:day:*, places:city:*) hold only that pointer. Storing a
+ * payload that already exists just extends its TTL (never shortens it), so a payload lives as
+ * long as its longest-lived pointer and Redis memory follows the number of distinct payloads
+ * rather than the number of keys naming them.
+ */
+@Service
+public class PayloadStore {
+
+    private static final String PAYLOAD_PREFIX = "payload:";
+    private static final byte RAW = 'R';
+    private static final byte DEFLATED = 'D';
+
+    // Extends the TTL of an existing key if it would otherwise expire sooner; 0 if the key is gone
+    private static final DefaultRedisScript<Long> RETAIN = new DefaultRedisScript<>(
+            "local ttl = redis.call('ttl', KEYS[1]) "
+                    + "if ttl == -2 then return 0 end "
+                    + "if ttl >= 0 and ttl < tonumber(ARGV[1]) then redis.call('expire', KEYS[1], ARGV[1]) end "
+                    + "return 1",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final CacheMetrics cacheMetrics;
+    private final int compressMinBytes;
+
+    public PayloadStore(StringRedisTemplate redisTemplate, CacheMetrics cacheMetrics,
+            @Value("${itinera.payload.compress-min-bytes:1024}") int compressMinBytes) {
+        this.redisTemplate = redisTemplate;
+        this.cacheMetrics = cacheMetrics;
+        this.compressMinBytes = compressMinBytes;
+    }
+
+    /** Stores {@code content} for a new session and returns the session id. */
+    public String createSession(String sessionPrefix, String content, Duration ttl) {
+        String sessionId = UUID.randomUUID().toString();
+        writeSession(sessionPrefix, sessionId, content, ttl);
+        return sessionId;
+    }
+
+    public void writeSession(String sessionPrefix, String sessionId, String content, Duration ttl) {
+        writePointer(sessionPrefix + sessionId, content, ttl);
+    }
+
+    public String resolveSession(String sessionPrefix, String sessionId) {
+        return deref(lookupSession(sessionPrefix, sessionId));
+    }
+
+    /** Points {@code key} at the payload of {@code content}; both live for at least {@code ttl}. */
+    public void writePointer(String key, String content, Duration ttl) {
+        redisTemplate.opsForValue().set(key, put(content, ttl), ttl);
+    }
+
+    /** The content {@code key} points at; null if the key or its payload is gone. */
+    public String resolve(String key) {
+        return deref(redisTemplate.opsForValue().get(key));
+    }
+
+    /** {@link #resolve} for many keys, in two round trips. */
+    public List<String> resolveAll(List<String> keys) {
+        List<String> pointers = redisTemplate.opsForValue().multiGet(keys);
+        List<String> out = new ArrayList<>(Collections.nCopies(keys.size(), (String) null));
+        if (pointers == null)
+            return out;
+
+        List<Integer> shared = new ArrayList<>();
+        for (int i = 0; i < pointers.size(); i++) {
+            String pointer = pointers.get(i);
+            if (pointer != null && pointer.startsWith(PAYLOAD_PREFIX))
+                shared.add(i);
+            else
+                out.set(i, pointer);
+        }
+        if (shared.isEmpty())
+            return out;
+
+        byte[][] payloadKeys = new byte[shared.size()][];
+        for (int k = 0; k < payloadKeys.length; k++)
+            payloadKeys[k] = pointers.get(shared.get(k)).getBytes(StandardCharsets.UTF_8);
+        List<byte[]> encoded = redisTemplate
+                .execute((RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(payloadKeys));
+        for (int k = 0; encoded != null && k < shared.size(); k++) {
+            byte[] payload = encoded.get(k);
+            if (payload != null)
+                out.set(shared.get(k), new String(decode(payload), StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    /** Keeps {@code key} and its payload for {@code ttl} more; false if the key is gone. */
+    public boolean touch(String key, Duration ttl) {
+        String pointer = redisTemplate.opsForValue().get(key);
+        if (pointer == null)
+            return false;
+        redisTemplate.expire(key, ttl);
+        if (pointer.startsWith(PAYLOAD_PREFIX))
+            redisTemplate.execute(RETAIN, List.of(pointer), String.valueOf(ttl.toSeconds()));
+        return true;
+    }
+
+    // Null, a payload key, or a value written before payloads were shared
+    private String deref(String pointer) {
+        if (pointer == null || !pointer.startsWith(PAYLOAD_PREFIX))
+            return pointer;
+        return get(pointer);
+    }
+
+    /**
+     * A payload as stored: a tag byte followed by raw UTF-8 or a zlib stream. Lets callers send
+     * the stored bytes straight to a client — deflated bodies as Content-Encoding: deflate —
+     * without decoding and re-encoding them.
+     */
+    public static final class Encoded {
+        private final byte[] bytes;
+
+        Encoded(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        public boolean isDeflated() {
+            return bytes[0] == DEFLATED;
+        }
+
+        // The stored body without the tag byte: UTF-8 JSON, or zlib if isDeflated()
+        public InputStream body() {
+            return new ByteArrayInputStream(bytes, 1, bytes.length - 1);
+        }
+
+        public int bodyLength() {
+            return bytes.length - 1;
+        }
+
+        public byte[] decoded() {
+            return decode(bytes);
+        }
+    }
+
+    public Encoded resolveSessionEncoded(String sessionPrefix, String sessionId) {
+        String pointer = lookupSession(sessionPrefix, sessionId);
+        if (pointer == null)
+            return null;
+        if (!pointer.startsWith(PAYLOAD_PREFIX))
+            return new Encoded(encode(pointer.getBytes(StandardCharsets.UTF_8), Integer.MAX_VALUE));
+        byte[] encoded = getEncoded(pointer);
+        return encoded == null ? null : new Encoded(encoded);
+    }
+
+    private String lookupSession(String sessionPrefix, String sessionId) {
+        String pointer = redisTemplate.opsForValue().get(sessionPrefix + sessionId);
+        String family = CacheMetrics.family(sessionPrefix + sessionId);
+        if (pointer != null)
+            cacheMetrics.hit(family);
+        else
+            cacheMetrics.miss(family);
+        return pointer;
+    }
+
+    /** Stores {@code content} if new, keeps it alive for at least {@code ttl}, returns its key. */
+    public String put(String content, Duration ttl) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String key = PAYLOAD_PREFIX + sha256(bytes);
+        String seconds = String.valueOf(ttl.toSeconds());
+
+        // Hit path: only the key crosses the wire
+        Long retained = redisTemplate.execute(RETAIN, List.of(key), seconds);
+        if (retained != null && retained == 1)
+            return key;
+
+        byte[] encoded = encode(bytes, compressMinBytes);
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        Boolean stored = redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                .set(rawKey, encoded, Expiration.from(ttl), SetOption.ifAbsent()));
+        if (!Boolean.TRUE.equals(stored))
+            redisTemplate.execute(RETAIN, List.of(key), seconds); // raced with another writer
+        return key;
+    }
+
+    public String get(String payloadKey) {
+        byte[] encoded = getEncoded(payloadKey);
+        return encoded == null ? null : new String(decode(encoded), StandardCharsets.UTF_8);
+    }
+
+    private byte[] getEncoded(String payloadKey) {
+        byte[] rawKey = payloadKey.getBytes(StandardCharsets.UTF_8);
+        return redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(rawKey));
+    }
+
+    // One tag byte, then either the raw UTF-8 or its deflate stream
+    static byte[] encode(byte[] bytes, int compressMinBytes) {
+        if (bytes.length >= compressMinBytes) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(bytes);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 3 + 16);
+                out.write(DEFLATED);
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+                if (out.size() < bytes.length + 1)
+                    return out.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+        byte[] raw = new byte[bytes.length + 1];
+        raw[0] = RAW;
+        System.arraycopy(bytes, 0, raw, 1, bytes.length);
+        return raw;
+    }
+
+    static byte[] decode(byte[] encoded) {
+        if (encoded[0] == RAW) {
+            byte[] raw = new byte[encoded.length - 1];
+            System.arraycopy(encoded, 1, raw, 0, raw.length);
+            return raw;
+        }
+        if (encoded[0] != DEFLATED)
+            throw new IllegalStateException("Unknown payload encoding: " + encoded[0]);
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(encoded, 1, encoded.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IllegalStateException("Truncated payload");
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,95 +1,111 @@
 package com.itinera.backend.service;
 
-import okhttp3.*;
-
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-import org.springframework.beans.factory.annotation.Value;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itinera.backend.model.PlaceSuggestion;
+import com.itinera.backend.model.PlacesPayload;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 @Service
 public class PlacesService {
 
-    @Value("${openrouter.api.key}")
-    private String apiKey;
+    static final String CITY_PREFIX = "places:city:";
+    static final Duration CITY_TTL = Duration.ofHours(1);
+    private static final String SESSION_PREFIX = "places:session:";
+    private static final Duration SESSION_TTL = Duration.ofHours(1);
+
+    // Request count per city, read by CacheWarmer to decide what to keep warm
+    static final String POPULARITY_KEY = "places:popularity";
 
-    private static final String API_URL = "https://openrouter.ai/api/v1/chat/completions";
-    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
     private final StringRedisTemplate redisTemplate;
-    private final OkHttpClient client;
+    private final LlmGateway llmGateway;
+    private final SingleFlightCache singleFlightCache;
+    private final PayloadStore payloadStore;
 
-    public PlacesService(StringRedisTemplate redisTemplate) {
+    public PlacesService(StringRedisTemplate redisTemplate, LlmGateway llmGateway,
+            SingleFlightCache singleFlightCache, PayloadStore payloadStore) {
         this.redisTemplate = redisTemplate;
-
-        // production-grade HTTP client
-        this.client = new OkHttpClient.Builder()
-                .callTimeout(30, TimeUnit.SECONDS)
-                .connectTimeout(10, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .build();
+        this.llmGateway = llmGateway;
+        this.singleFlightCache = singleFlightCache;
+        this.payloadStore = payloadStore;
     }
 
-    public String generatePlaces(String city) {
+    // Concurrent misses for one city share a single model call, here and across instances
+    public CompletableFuture<String> generatePlaces(String city) {
         try {
-            String existing = redisTemplate.opsForValue().get("places:city:" + city);
-
-            if (existing != null) {
-                String sessionId = UUID.randomUUID().toString();
-                redisTemplate.opsForValue().set("places:session:" + sessionId, existing, 1, TimeUnit.HOURS);
-                return sessionId;
-            }
+            redisTemplate.opsForZSet().incrementScore(POPULARITY_KEY, city, 1);
 
-            JSONObject message = new JSONObject()
-                    .put("role", "user")
-                    .put("content",
-                            "Return ONLY a valid JSON object. No extra text. JSON must contain a key 'places' with an array of 20 objects."
-                                    + "Each object must include: 'name','description','read_more_link','open_time','close_time',"
-                                    + "'ideal_start_time','ideal_end_time','priority','latitude','longitude'. "
-                                    + "List 20 top tourist attractions in " + city + ".");
+            return singleFlightCache.get(CITY_PREFIX + city, CITY_TTL, () -> loadPlaces(city))
+                    .thenApply(content -> payloadStore.createSession(SESSION_PREFIX, content, SESSION_TTL))
+                    .exceptionally(ItineraryService::errorMessage);
 
-            JSONObject body = new JSONObject()
-                    .put("model", "openai/gpt-oss-20b:free")
-                    .put("messages", new JSONArray().put(message));
-
-            RequestBody requestBody = RequestBody.create(body.toString(), JSON);
-
-            Request request = new Request.Builder()
-                    .url(API_URL)
-                    .addHeader("Authorization", "Bearer " + apiKey)
-                    .addHeader("HTTP-Referer", "http://localhost:8080")
-                    .addHeader("X-Title", "Places Service")
-                    .post(requestBody)
-                    .build();
-
-            Response response = client.newCall(request).execute();
-            String jsonResponse = response.body().string();
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(ItineraryService.errorMessage(e));
+        }
+    }
 
-            JSONObject json = new JSONObject(jsonResponse);
-            String content = json
-                    .getJSONArray("choices")
-                    .getJSONObject(0)
-                    .getJSONObject("message")
-                    .getString("content");
+    // Regenerates a city's places ahead of expiry; no-op if another refresh holds the lease
+    CompletableFuture<String> refreshPlaces(String city) {
+        return singleFlightCache.refresh(CITY_PREFIX + city, CITY_TTL, () -> loadPlaces(city));
+    }
 
-            String sessionId = UUID.randomUUID().toString();
+    private CompletableFuture<String> loadPlaces(String city) {
+        String prompt = "Return ONLY a valid JSON object. No extra text. JSON must contain a key 'places' with an array of 20 objects."
+                + "Each object must include: 'name','description','read_more_link','open_time','close_time',"
+                + "'ideal_start_time','ideal_end_time','priority','latitude','longitude'. "
+                + "List 20 top tourist attractions in " + city + ".";
+        return llmGateway.complete(prompt, "Places Service").thenApply(PlacesService::normalize);
+    }
 
-            redisTemplate.opsForValue().set("places:city:" + city, content, 1, TimeUnit.HOURS);
-            redisTemplate.opsForValue().set("places:session:" + sessionId, content, 1, TimeUnit.HOURS);
+    /**
+     * Validates the model's output once, at generation time, and re-encodes it as canonical
+     * JSON. Places without a name or with impossible coordinates are dropped; a response with no
+     * usable places fails the load so nothing bad is cached. Reads then serve the stored bytes
+     * as they are.
+     */
+    static String normalize(String content) {
+        String json = content.strip();
+        // Models sometimes wrap the object in a markdown fence despite the prompt
+        int start = json.indexOf('{');
+        int end = json.lastIndexOf('}');
+        if (start < 0 || end < start)
+            throw new IllegalStateException("Model returned no JSON object");
 
-            return sessionId;
+        try {
+            PlacesPayload payload = MAPPER.readValue(json.substring(start, end + 1), PlacesPayload.class);
+            List<PlaceSuggestion> valid = new ArrayList<>();
+            if (payload.getPlaces() != null) {
+                for (PlaceSuggestion place : payload.getPlaces()) {
+                    if (isValid(place))
+                        valid.add(place);
+                }
+            }
+            if (valid.isEmpty())
+                throw new IllegalStateException("Model returned no valid places");
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "Error: " + e.getMessage();
+            return MAPPER.writeValueAsString(new PlacesPayload(valid));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Model returned malformed places JSON: " + e.getOriginalMessage(), e);
         }
     }
 
-    public String getPlaces(String sessionId) {
-        return redisTemplate.opsForValue().get("places:session:" + sessionId);
+    private static boolean isValid(PlaceSuggestion place) {
+        return place != null
+                && place.getName() != null && !place.getName().isBlank()
+                && place.getLatitude() >= -90 && place.getLatitude() <= 90
+                && place.getLongitude() >= -180 && place.getLongitude() <= 180
+                && !(place.getLatitude() == 0 && place.getLongitude() == 0);
+    }
+
+    // Stored bytes exactly as written at generation time, or null for an unknown session
+    public PayloadStore.Encoded getPlaces(String sessionId) {
+        return payloadStore.resolveSessionEncoded(SESSION_PREFIX, sessionId);
     }
 }
@@ -0,0 +1,87 @@
+package com.itinera.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Rendered /generate responses by plan key (see PlanKeys), in memory first and Redis second.
+ * Plans are deterministic for their key, so an entry never goes stale; TTLs only bound memory.
+ * The exception is a plan computed on estimated travel times while OSRM was unavailable: it is
+ * kept under plan:est:* for {@code itinera.plan-cache.estimated-ttl-minutes} only, long enough
+ * for its planId to be fetched and edited, short enough that OSRM soon gets another chance.
+ * The Redis tier goes through the {@link PayloadStore}, so large plans are stored compressed
+ * and identical plans are stored once.
+ */
+@Service
+public class PlanCache {
+
+    private static final String PREFIX = "plan:doc:";
+    private static final String ESTIMATED_PREFIX = "plan:est:";
+
+    private final PayloadStore payloadStore;
+    private final CacheMetrics cacheMetrics;
+    private final Cache<String, Entry> local;
+    private final Duration ttl;
+    private final Duration estimatedTtl;
+
+    public PlanCache(PayloadStore payloadStore, CacheMetrics cacheMetrics,
+            @Value("${itinera.plan-cache.max-entries:2000}") long maxEntries,
+            @Value("${itinera.plan-cache.local-ttl-minutes:60}") long localTtlMinutes,
+            @Value("${itinera.plan-cache.ttl-hours:24}") long ttlHours,
+            @Value("${itinera.plan-cache.estimated-ttl-minutes:5}") long estimatedTtlMinutes) {
+        this.payloadStore = payloadStore;
+        this.cacheMetrics = cacheMetrics;
+        Duration localTtl = Duration.ofMinutes(localTtlMinutes);
+        this.local = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(Expiry.creating((String key, Entry entry) -> entry.estimated
+                        ? min(localTtl, Duration.ofMinutes(estimatedTtlMinutes))
+                        : localTtl))
+                .build();
+        this.ttl = Duration.ofHours(ttlHours);
+        this.estimatedTtl = Duration.ofMinutes(estimatedTtlMinutes);
+    }
+
+    private static final class Entry {
+        final String json;
+        final boolean estimated;
+
+        Entry(String json, boolean estimated) {
+            this.json = json;
+            this.estimated = estimated;
+        }
+    }
+
+    public String get(String planKey) {
+        Entry entry = local.getIfPresent(planKey);
+        if (entry != null) {
+            cacheMetrics.hit("plan:local");
+            return entry.json;
+        }
+        cacheMetrics.miss("plan:local");
+
+        String json = payloadStore.resolveSession(PREFIX, planKey);
+        boolean estimated = json == null;
+        if (estimated)
+            json = payloadStore.resolveSession(ESTIMATED_PREFIX, planKey);
+        if (json != null)
+            local.put(planKey, new Entry(json, estimated));
+        return json;
+    }
+
+    /** Caches a rendered plan; {@code estimated} plans only briefly. */
+    public void put(String planKey, String json, boolean estimated) {
+        local.put(planKey, new Entry(json, estimated));
+        payloadStore.writeSession(estimated ? ESTIMATED_PREFIX : PREFIX, planKey, json,
+                estimated ? estimatedTtl : ttl);
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+}
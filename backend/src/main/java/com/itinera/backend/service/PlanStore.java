@@ -0,0 +1,66 @@
+package com.itinera.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.itinera.backend.model.DayPlan;
+import com.itinera.backend.model.Hotel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Recently generated plans, kept so an edit can be applied as a delta: the trip matrix, every
+ * day's visiting order survive between requests. Plans live in this instance's
+ * memory, bounded by matrix bytes and expiring when unused; an unknown id means the client
+ * posts the whole trip again.
+ */
+@Service
+public class PlanStore {
+
+    private final Cache<String, Plan> plans;
+
+    public PlanStore(@Value("${itinera.plan-store.max-bytes:67108864}") long maxBytes,
+            @Value("${itinera.plan-store.ttl-minutes:60}") long ttlMinutes) {
+        this.plans = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String id, Plan plan) -> (int) Math.min(Integer.MAX_VALUE, plan.matrix.footprintBytes()))
+                .expireAfterAccess(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    // Never modified once stored: an edit builds the next plan and stores it under a new id
+    static final class Plan {
+        final Hotel hotel;
+        final AlgorithmService.StopIndex stops; // matrix rows, hotel first
+        final MatrixResult matrix;
+        final boolean estimated; // matrix from straight-line estimates
+        final List<DayPlan> schedules; // one per day, places in visiting order
+
+        Plan(Hotel hotel, AlgorithmService.StopIndex stops, MatrixResult matrix, boolean estimated,
+                List<DayPlan> schedules) {
+            this.hotel = hotel;
+            this.stops = stops;
+            this.matrix = matrix;
+            this.estimated = estimated;
+            this.schedules = schedules;
+        }
+    }
+
+    String save(Plan plan) {
+        String id = UUID.randomUUID().toString();
+        plans.put(id, plan);
+        return id;
+    }
+
+    // Generated plans are stored under their plan key, so a cached response can name them
+    void put(String id, Plan plan) {
+        plans.put(id, plan);
+    }
+
+    Plan get(String id) {
+        return plans.getIfPresent(id);
+    }
+}
@@ -0,0 +1,77 @@
+package com.itinera.backend.service;
+
+import com.itinera.backend.algorithm.BranchAndBoundSolver;
+import com.itinera.backend.algorithm.HeldKarpSolver;
+import com.itinera.backend.algorithm.LocalSearchSolver;
+import com.itinera.backend.algorithm.Route;
+import com.itinera.backend.algorithm.RouteSolver;
+import com.itinera.backend.algorithm.TimeWindowSolver;
+import com.itinera.backend.algorithm.TimeWindows;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Picks a route solver by day size:
+ * - exact Held-Karp for small days
+ * - branch-and-bound (seeded by local search) for medium days
+ * - 2-opt / Or-opt local search beyond that
+ * In time-window mode the chosen solver only seeds the TSPTW search.
+ * Edited days skip the choice and warm-start local search from their previous order.
+ */
+@Service
+public class RouteSolverEngine {
+
+    @Value("${itinera.solver.exact-max-places:13}")
+    private int exactMaxPlaces;
+
+    @Value("${itinera.solver.bnb-max-places:16}")
+    private int branchAndBoundMaxPlaces;
+
+    @Value("${itinera.solver.bnb-node-budget:2000000}")
+    private long branchAndBoundNodeBudget;
+
+    @Value("${itinera.solver.tw-node-budget:500000}")
+    private long timeWindowNodeBudget;
+
+    private final RouteSolver exact = new HeldKarpSolver();
+    private final LocalSearchSolver heuristic = new LocalSearchSolver();
+
+    public Route solve(double[] cost, int size) {
+        return solverFor(size - 1).solve(cost, size);
+    }
+
+    /**
+     * TSPTW mode: cheapest route that respects every opening window, or the unconstrained
+     * route when no such route exists.
+     */
+    public Route solve(double[] cost, int size, TimeWindows windows) {
+        return new TimeWindowSolver(windows, solverFor(size - 1), timeWindowNodeBudget).solve(cost, size);
+    }
+
+    /**
+     * Re-solves an edited day from {@code initial}, its previous order; places not in it are
+     * inserted at their cheapest position first.
+     */
+    public Route resolve(double[] cost, int size, int[] initial) {
+        return heuristic.improve(cost, size, initial);
+    }
+
+    public Route resolve(double[] cost, int size, TimeWindows windows, int[] initial) {
+        RouteSolver warm = (c, s) -> heuristic.improve(c, s, initial);
+        return new TimeWindowSolver(windows, warm, timeWindowNodeBudget).solve(cost, size);
+    }
+
+    // Settings that change which route a day gets, for plan cache keys
+    String config() {
+        return "exact=" + exactMaxPlaces + ",bnb=" + branchAndBoundMaxPlaces + "/" + branchAndBoundNodeBudget
+                + ",tw=" + timeWindowNodeBudget;
+    }
+
+    RouteSolver solverFor(int places) {
+        if (places <= exactMaxPlaces)
+            return exact;
+        if (places <= branchAndBoundMaxPlaces)
+            return new BranchAndBoundSolver(heuristic, branchAndBoundNodeBudget);
+        return heuristic;
+    }
+}
@@ -0,0 +1,31 @@
+package com.itinera.backend.service;
+
+import com.itinera.backend.model.Place;
+
+import java.util.List;
+
+/**
+ * Source of road distances (meters) and travel durations (seconds) between places.
+ * Selected with {@code routing.provider}: "osrm" (HTTP, default) or "local" (in-process graph).
+ */
+public interface RoutingMatrixProvider {
+
+    /**
+     * Fills the cells {@code rows × cols} of {@code target}, where row/column k of the target
+     * is {@code places.get(k)}. Other cells are left untouched.
+     */
+    void table(List<Place> places, int[] rows, int[] cols, MatrixResult target) throws Exception;
+
+    /**
+     * Where the travel times come from (provider and its server, profile or data), so results
+     * computed from one source are never served as another's.
+     */
+    String source();
+
+    /**
+     * Remote providers are slow enough to be worth fronting with the shared Redis pair store.
+     */
+    default boolean isRemote() {
+        return true;
+    }
+}
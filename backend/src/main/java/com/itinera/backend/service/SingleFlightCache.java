@@ -0,0 +1,185 @@
+package com.itinera.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Redis read-through cache where each missing key is loaded once, cluster-wide.
+ *
+ * Two tiers of coalescing: concurrent callers in this JVM share one future per key, and across
+ * JVMs a short lease (SET key:lock NX PX) elects one loader. Everyone else subscribes to
+ * singleflight:&lt;key&gt; and gets the value when the loader publishes it. If the lease holder dies,
+ * waiters contend for the lease again once it lapses and one of them takes over the load.
+ *
+ * Every value is also kept under key:stale for a longer TTL. While a refresh is in flight that
+ * last good value is served immediately (stale-while-revalidate), so an expiry never stalls
+ * readers who had a value a moment ago. Both keys are pointers into the {@link PayloadStore}, so
+ * the value itself is stored once, compressed.
+ */
+@Service
+public class SingleFlightCache {
+
+    private static final String CHANNEL_PREFIX = "singleflight:";
+    private static final String FAILED = "\u0000failed";
+
+    // Release the lease only if it is still ours
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final PayloadStore payloadStore;
+    private final CacheMetrics cacheMetrics;
+    private final Duration lease;
+    private final Duration staleTtl;
+
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<String>> waiters = new ConcurrentHashMap<>();
+
+    public SingleFlightCache(StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer,
+            PayloadStore payloadStore, CacheMetrics cacheMetrics,
+            @Value("${itinera.single-flight.lease-ms:90000}") long leaseMs,
+            @Value("${itinera.single-flight.stale-ttl-hours:24}") long staleTtlHours) {
+        this.redisTemplate = redisTemplate;
+        this.payloadStore = payloadStore;
+        this.cacheMetrics = cacheMetrics;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.staleTtl = Duration.ofHours(staleTtlHours);
+        listenerContainer.addMessageListener((message, pattern) -> onMessage(message),
+                new PatternTopic(CHANNEL_PREFIX + "*"));
+    }
+
+    /**
+     * Returns the cached value for {@code key}, or the last good value while a refresh runs, or
+     * the result of {@code loader} — called at most once per key across the cluster at a time.
+     */
+    public CompletableFuture<String> get(String key, Duration ttl, Supplier<CompletableFuture<String>> loader) {
+        String fresh = payloadStore.resolve(key);
+        if (fresh != null) {
+            cacheMetrics.hit(CacheMetrics.family(key));
+            return CompletableFuture.completedFuture(fresh);
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> shared = inFlight.putIfAbsent(key, mine);
+        if (shared != null)
+            return shared;
+
+        mine.whenComplete((value, error) -> inFlight.remove(key, mine));
+        try {
+            resolve(key, ttl, loader).whenComplete((value, error) -> {
+                if (error != null)
+                    mine.completeExceptionally(error);
+                else
+                    mine.complete(value);
+            });
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+        }
+        return mine;
+    }
+
+    /**
+     * Reloads {@code key} even though it may still be cached, for refresh-ahead. Completes with
+     * null without loading when another load already holds the lease.
+     */
+    public CompletableFuture<String> refresh(String key, Duration ttl, Supplier<CompletableFuture<String>> loader) {
+        String token = UUID.randomUUID().toString();
+        Boolean leader = redisTemplate.opsForValue().setIfAbsent(key + ":lock", token, lease);
+        if (!Boolean.TRUE.equals(leader))
+            return CompletableFuture.completedFuture(null);
+        return load(key, ttl, token, loader);
+    }
+
+    private CompletableFuture<String> resolve(String key, Duration ttl, Supplier<CompletableFuture<String>> loader) {
+        String stale = payloadStore.resolve(key + ":stale");
+        if (stale != null)
+            cacheMetrics.stale(CacheMetrics.family(key));
+        else
+            cacheMetrics.miss(CacheMetrics.family(key));
+        String token = UUID.randomUUID().toString();
+        Boolean leader = redisTemplate.opsForValue().setIfAbsent(key + ":lock", token, lease);
+
+        if (Boolean.TRUE.equals(leader)) {
+            CompletableFuture<String> load = load(key, ttl, token, loader);
+            return stale != null ? CompletableFuture.completedFuture(stale) : load;
+        }
+        if (stale != null)
+            return CompletableFuture.completedFuture(stale);
+
+        return await(key, ttl, loader);
+    }
+
+    // Someone else is loading: wait for their publish. If the lease lapses first, race for it
+    // again rather than loading outright, so one waiter takes over and the rest keep waiting
+    private CompletableFuture<String> await(String key, Duration ttl, Supplier<CompletableFuture<String>> loader) {
+        CompletableFuture<String> waiter = waiters.computeIfAbsent(CHANNEL_PREFIX + key,
+                channel -> new CompletableFuture<>());
+        String landed = payloadStore.resolve(key);
+        if (landed != null)
+            waiter.complete(landed);
+
+        return waiter.orTimeout(lease.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((value, error) -> waiters.remove(CHANNEL_PREFIX + key, waiter))
+                .exceptionallyCompose(error -> unwrap(error) instanceof TimeoutException
+                        ? takeOver(key, ttl, loader)
+                        : CompletableFuture.failedFuture(unwrap(error)));
+    }
+
+    private CompletableFuture<String> takeOver(String key, Duration ttl, Supplier<CompletableFuture<String>> loader) {
+        String token = UUID.randomUUID().toString();
+        Boolean leader = redisTemplate.opsForValue().setIfAbsent(key + ":lock", token, lease);
+        return Boolean.TRUE.equals(leader) ? load(key, ttl, token, loader) : await(key, ttl, loader);
+    }
+
+    private CompletableFuture<String> load(String key, Duration ttl, String token,
+            Supplier<CompletableFuture<String>> loader) {
+        CompletableFuture<String> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+
+        return load.whenComplete((value, error) -> {
+            try {
+                if (error == null) {
+                    payloadStore.writePointer(key, value, ttl);
+                    payloadStore.writePointer(key + ":stale", value, staleTtl);
+                }
+                redisTemplate.convertAndSend(CHANNEL_PREFIX + key, error == null ? value : FAILED);
+            } finally {
+                redisTemplate.execute(RELEASE, List.of(key + ":lock"), token);
+            }
+        });
+    }
+
+    private void onMessage(Message message) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        CompletableFuture<String> waiter = waiters.remove(channel);
+        if (waiter == null)
+            return;
+
+        String value = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (FAILED.equals(value))
+            waiter.completeExceptionally(new IllegalStateException("Load failed on another instance"));
+        else
+            waiter.complete(value);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
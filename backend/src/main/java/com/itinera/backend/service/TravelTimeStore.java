@@ -0,0 +1,168 @@
+package com.itinera.backend.service;
+
+import com.itinera.backend.model.Place;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pairwise distance/duration store in Redis, shared by every node and surviving restarts.
+ *
+ * Keys are quantized coordinate pairs ("osrm:pair:profile:source:lat,lon:lat,lon" at 1e-5°, about
+ * a metre), so any matrix over already-seen places can be assembled without asking OSRM, whatever
+ * the order or grouping of the places. The source is a short hash of the OSRM base URL and
+ * osrm.dataset, so a different server, profile or map build never reads another's travel times;
+ * bump osrm.dataset when the server's data is rebuilt. Values are "meters,seconds".
+ */
+@Service
+public class TravelTimeStore {
+
+    private static final double QUANTUM = 1e5;
+    private static final int MGET_BATCH = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+
+    private final Counter pairHits;
+    private final Counter pairMisses;
+    private final Counter avoidedCalls;
+
+    @Value("${osrm.pair-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${osrm.pair-cache.ttl-hours:168}")
+    private long ttlHours;
+
+    public TravelTimeStore(StringRedisTemplate redisTemplate, MeterRegistry registry,
+            @Value("${osrm.base-url:http://router.project-osrm.org}") String baseUrl,
+            @Value("${osrm.profile:driving}") String profile,
+            @Value("${osrm.dataset:}") String dataset) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix(baseUrl, profile, dataset);
+        this.pairHits = registry.counter("osrm.pair.cache.hits");
+        this.pairMisses = registry.counter("osrm.pair.cache.misses");
+        this.avoidedCalls = registry.counter("osrm.calls.avoided");
+        Gauge.builder("osrm.pair.cache.hit.ratio", this, TravelTimeStore::hitRatio).register(registry);
+    }
+
+    /**
+     * Fills every cached cell of {@code matrix} and returns which cells were found.
+     * The diagonal is always known (zero). A Redis failure just means nothing is known.
+     */
+    public boolean[][] load(List<Place> places, MatrixResult matrix) {
+        int n = places.size();
+        boolean[][] known = new boolean[n][n];
+        for (int i = 0; i < n; i++)
+            known[i][i] = true;
+        if (!enabled || n < 2)
+            return known;
+
+        String[] q = quantize(places);
+        List<String> keys = new ArrayList<>(n * (n - 1));
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                if (i != j)
+                    keys.add(key(q[i], q[j]));
+
+        List<String> values = new ArrayList<>(keys.size());
+        try {
+            for (int from = 0; from < keys.size(); from += MGET_BATCH) {
+                List<String> batch = redisTemplate.opsForValue()
+                        .multiGet(keys.subList(from, Math.min(keys.size(), from + MGET_BATCH)));
+                if (batch == null)
+                    return known;
+                values.addAll(batch);
+            }
+        } catch (Exception e) {
+            System.err.println("Travel-time store unavailable: " + e.getMessage());
+            return known;
+        }
+
+        int k = 0, hits = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i == j)
+                    continue;
+                String value = values.get(k++);
+                if (value == null)
+                    continue;
+                int comma = value.indexOf(',');
+                matrix.set(i, j, Double.parseDouble(value.substring(0, comma)),
+                        Double.parseDouble(value.substring(comma + 1)));
+                known[i][j] = true;
+                hits++;
+            }
+        }
+        pairHits.increment(hits);
+        pairMisses.increment(keys.size() - hits);
+        return known;
+    }
+
+    /**
+     * Writes the cells rows × cols back to Redis in one pipeline.
+     */
+    public void save(List<Place> places, int[] rows, int[] cols, MatrixResult matrix) {
+        if (!enabled)
+            return;
+
+        String[] q = quantize(places);
+        Expiration ttl = Expiration.from(ttlHours, TimeUnit.HOURS);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i : rows) {
+                    for (int j : cols) {
+                        if (i == j)
+                            continue;
+                        byte[] key = key(q[i], q[j]).getBytes(StandardCharsets.UTF_8);
+                        byte[] value = (matrix.distance(i, j) + "," + matrix.duration(i, j))
+                                .getBytes(StandardCharsets.UTF_8);
+                        connection.stringCommands().set(key, value, ttl, RedisStringCommands.SetOption.upsert());
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            System.err.println("Could not store travel times: " + e.getMessage());
+        }
+    }
+
+    // Whole matrix assembled from stored pairs
+    public void recordAvoidedCall() {
+        avoidedCalls.increment();
+    }
+
+    private double hitRatio() {
+        double total = pairHits.count() + pairMisses.count();
+        return total == 0 ? 0 : pairHits.count() / total;
+    }
+
+    private String[] quantize(List<Place> places) {
+        String[] q = new String[places.size()];
+        for (int i = 0; i < q.length; i++) {
+            Place p = places.get(i);
+            q[i] = Math.round(p.getLatitude() * QUANTUM) + "," + Math.round(p.getLongitude() * QUANTUM);
+        }
+        return q;
+    }
+
+    private String key(String from, String to) {
+        return keyPrefix + from + ':' + to;
+    }
+
+    static String keyPrefix(String baseUrl, String profile, String dataset) {
+        String source = DigestUtils.md5DigestAsHex((baseUrl + '|' + dataset).getBytes(StandardCharsets.UTF_8));
+        return "osrm:pair:" + profile + ':' + source.substring(0, 12) + ':';
+    }
+}
@@ -0,0 +1,62 @@
+package com.itinera.backend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incrementally picks completed day objects out of a streamed itinerary document
+ * ({"itinerary": [ {day}, {day}, ... ]}). Feed it text as it arrives; each call returns the
+ * days whose closing brace was in that chunk. Strings and escapes are tracked so braces inside
+ * descriptions don't count.
+ */
+public class ItineraryDayParser {
+
+    private final StringBuilder text = new StringBuilder();
+    private int scanned;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private int dayStart = -1;
+
+    public List<String> feed(String chunk) {
+        text.append(chunk);
+        List<String> days = new ArrayList<>();
+
+        for (; scanned < text.length(); scanned++) {
+            char c = text.charAt(scanned);
+            if (inString) {
+                if (escaped)
+                    escaped = false;
+                else if (c == '\\')
+                    escaped = true;
+                else if (c == '"')
+                    inString = false;
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> inString = true;
+                case '{', '[' -> {
+                    depth++;
+                    // root object (1) > itinerary array (2) > day object (3)
+                    if (c == '{' && depth == 3)
+                        dayStart = scanned;
+                }
+                case '}', ']' -> {
+                    if (c == '}' && depth == 3 && dayStart >= 0) {
+                        days.add(text.substring(dayStart, scanned + 1));
+                        dayStart = -1;
+                    }
+                    depth--;
+                }
+                default -> {
+                }
+            }
+        }
+        return days;
+    }
+
+    public String text() {
+        return text.toString();
+    }
+}
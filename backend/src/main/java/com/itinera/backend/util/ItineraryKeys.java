@@ -0,0 +1,73 @@
+package com.itinera.backend.util;
+
+import com.itinera.backend.model.ItineraryRequest;
+import com.itinera.backend.model.Place;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Content-addressed cache keys for generated itineraries.
+ *
+ * A key is the SHA-256 of a canonical form of the model's input: clusters and places in order,
+ * names with whitespace collapsed, coordinates rounded to 5 decimals (~1 m) and every time field.
+ * Descriptions are left out — they don't change the schedule the model produces. Bump
+ * {@link #VERSION} whenever the prompt changes so old documents stop matching.
+ */
+public class ItineraryKeys {
+
+    private static final String VERSION = "v1";
+
+    public static String itinerary(ItineraryRequest data) {
+        StringBuilder canonical = new StringBuilder(VERSION);
+        List<List<Place>> days = data.getOptimizedItineraries();
+        if (days != null) {
+            for (List<Place> day : days) {
+                canonical.append('[');
+                appendDay(canonical, day);
+                canonical.append(']');
+            }
+        }
+        return sha256(canonical);
+    }
+
+    public static String day(List<Place> day) {
+        StringBuilder canonical = new StringBuilder(VERSION).append("/day");
+        appendDay(canonical, day);
+        return sha256(canonical);
+    }
+
+    private static void appendDay(StringBuilder out, List<Place> day) {
+        if (day == null)
+            return;
+        for (Place p : day) {
+            appendPlace(out, p);
+        }
+    }
+
+    // Everything about a place that can change a schedule
+    private static StringBuilder appendPlace(StringBuilder out, Place p) {
+        String name = p.getName() == null ? "" : p.getName().trim().replaceAll("\\s+", " ");
+        return out.append('{')
+                .append(name).append('|')
+                .append(String.format(Locale.ROOT, "%.5f,%.5f", p.getLatitude(), p.getLongitude())).append('|')
+                .append(p.getOpenTime()).append(',').append(p.getCloseTime()).append('|')
+                .append(p.getIdealStartTime()).append(',').append(p.getIdealEndTime()).append('|')
+                .append(p.getExploreTime()).append('|')
+                .append(p.getPriority())
+                .append('}');
+    }
+
+    static String sha256(CharSequence canonical) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.itinera.backend.util;
+
+import com.itinera.backend.model.GenerateOrderRequest;
+import com.itinera.backend.model.Hotel;
+import com.itinera.backend.model.Place;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Content-addressed keys for generated plans.
+ *
+ * A key is the SHA-256 of the day count, the hotel, the places in {@link #sorted} order (so the
+ * order they were posted in doesn't matter), the radius, pruning and the solver configuration.
+ * Planning runs over the sorted places with {@link #seed}, so the same key always yields the
+ * same plan.
+ * Cached plans are served as stored, so unlike {@link ItineraryKeys} nothing is normalized:
+ * every field of the hotel and the places goes into the key exactly as posted.
+ */
+public class PlanKeys {
+
+    private static final String VERSION = "v2";
+
+    public static String plan(GenerateOrderRequest request, String solverConfig) {
+        StringBuilder canonical = new StringBuilder(VERSION).append('/').append(solverConfig)
+                .append("/days=").append(request.getDays());
+        Hotel hotel = request.getHotel();
+        if (hotel != null)
+            appendText(canonical.append("/hotel="), hotel.getName()).append(hotel.getLatitude()).append(',')
+                    .append(hotel.getLongitude());
+        if (request.getRadiusKm() != null)
+            canonical.append("/radius=").append(request.getRadiusKm());
+        if (Boolean.TRUE.equals(request.getPrune()))
+            canonical.append("/prune");
+        canonical.append('/');
+        List<String> places = canonicalPlaces(request.getPlaces());
+        places.sort(null);
+        for (String place : places)
+            canonical.append(place);
+        return ItineraryKeys.sha256(canonical);
+    }
+
+    /** Clustering seed derived from a plan key. */
+    public static long seed(String planKey) {
+        return Long.parseUnsignedLong(planKey.substring(0, 16), 16);
+    }
+
+    /** The places in canonical order, the order planning sees them in. */
+    public static List<Place> sorted(List<Place> places) {
+        if (places == null)
+            return null;
+        List<String> keys = canonicalPlaces(places);
+        Integer[] order = new Integer[places.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, Comparator.comparing(keys::get));
+
+        List<Place> sorted = new ArrayList<>(order.length);
+        for (int i : order)
+            sorted.add(places.get(i));
+        return sorted;
+    }
+
+    // One canonical string per place, in input order
+    private static List<String> canonicalPlaces(List<Place> places) {
+        List<String> canonical = new ArrayList<>();
+        if (places != null) {
+            for (Place p : places)
+                canonical.add(appendPlace(new StringBuilder(), p).toString());
+        }
+        return canonical;
+    }
+
+    // Every serialized field, coordinates unrounded
+    private static StringBuilder appendPlace(StringBuilder out, Place p) {
+        out.append('{');
+        appendText(out, p.getName());
+        appendText(out, p.getDescription());
+        return out.append(p.getLatitude()).append(',').append(p.getLongitude()).append('|')
+                .append(p.getOpenTime()).append(',').append(p.getCloseTime()).append('|')
+                .append(p.getIdealStartTime()).append(',').append(p.getIdealEndTime()).append('|')
+                .append(p.getExploreTime()).append('|')
+                .append(p.getPriority())
+                .append('}');
+    }
+
+    // Length-prefixed, so free text can't run into the next field
+    private static StringBuilder appendText(StringBuilder out, String text) {
+        return text == null ? out.append("-|") : out.append(text.length()).append(':').append(text).append('|');
+    }
+}
@@ -0,0 +1,58 @@
+package com.itinera.backend.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalancedClustererTest {
+
+    @Test
+    void capsStopsAndSpreadsADenseCore() {
+        // 14 places packed into the old city plus 2 outliers: plain K-Means piles the core into one day
+        Random random = new Random(3);
+        int n = 16;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        double[] explore = new double[n];
+        for (int i = 0; i < 14; i++) {
+            lat[i] = 28.65 + random.nextDouble() * 0.01;
+            lon[i] = 77.23 + random.nextDouble() * 0.01;
+            explore[i] = 60;
+        }
+        lat[14] = 28.40;
+        lon[14] = 77.00;
+        lat[15] = 28.90;
+        lon[15] = 77.50;
+        explore[14] = explore[15] = 60;
+
+        int[] initial = new KMeansClusterer(100).cluster(lat, lon, 3, 42).assignment;
+        int[] assignment = new BalancedClusterer(20, 0.15).cluster(lat, lon, explore, 3, 6, 3.12, initial).assignment;
+
+        int[] sizes = new int[3];
+        for (int c : assignment)
+            sizes[c]++;
+        for (int size : sizes) {
+            assertTrue(size > 0);
+            assertTrue(size <= 6);
+        }
+        assertEquals(n, sizes[0] + sizes[1] + sizes[2]);
+    }
+
+    @Test
+    void raisesCapWhenItCannotFitEveryPlace() {
+        double[] lat = { 28.60, 28.61, 28.62, 28.63, 28.64 };
+        double[] lon = { 77.20, 77.21, 77.22, 77.23, 77.24 };
+        double[] explore = { 30, 30, 30, 30, 30 };
+        int[] initial = new KMeansClusterer(100).cluster(lat, lon, 2, 1).assignment;
+
+        int[] assignment = new BalancedClusterer(20, 0.15).cluster(lat, lon, explore, 2, 1, 3.12, initial).assignment;
+
+        int[] sizes = new int[2];
+        for (int c : assignment)
+            sizes[c]++;
+        assertEquals(5, sizes[0] + sizes[1]);
+        assertTrue(sizes[0] <= 3 && sizes[1] <= 3);
+    }
+}
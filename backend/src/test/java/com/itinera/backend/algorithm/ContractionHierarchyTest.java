@@ -0,0 +1,110 @@
+package com.itinera.backend.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractionHierarchyTest {
+
+    private static final int SIDE = 12;
+
+    @Test
+    void manyToManyMatchesDijkstra(@TempDir Path dir) throws Exception {
+        Random random = new Random(3);
+        ContractionHierarchyBuilder builder = new ContractionHierarchyBuilder();
+        List<List<double[]>> edges = new ArrayList<>(); // from -> {to, duration, distance}
+
+        for (int y = 0; y < SIDE; y++)
+            for (int x = 0; x < SIDE; x++) {
+                builder.addNode(28.5 + y * 0.01, 77.1 + x * 0.01);
+                edges.add(new ArrayList<>());
+            }
+
+        for (int y = 0; y < SIDE; y++) {
+            for (int x = 0; x < SIDE; x++) {
+                int v = y * SIDE + x;
+                if (x + 1 < SIDE)
+                    connect(builder, edges, random, v, v + 1);
+                if (y + 1 < SIDE)
+                    connect(builder, edges, random, v, v + SIDE);
+            }
+        }
+
+        Path file = dir.resolve("grid.ch");
+        builder.write(file);
+        ContractionHierarchy ch = ContractionHierarchy.load(file);
+
+        int[] sources = { 0, 17, 55, 143, 90 };
+        int[] targets = { 143, 0, 66, 12, 90, 101 };
+        float[] durations = new float[sources.length * targets.length];
+        float[] distances = new float[sources.length * targets.length];
+        ch.manyToMany(sources, targets, durations, distances);
+
+        for (int a = 0; a < sources.length; a++) {
+            double[][] expected = dijkstra(edges, sources[a]);
+            for (int b = 0; b < targets.length; b++) {
+                int cell = a * targets.length + b;
+                assertEquals(expected[targets[b]][0], durations[cell], 1e-2);
+                assertEquals(expected[targets[b]][1], distances[cell], 1e-1);
+            }
+        }
+    }
+
+    @Test
+    void snapsToNearestNode(@TempDir Path dir) throws Exception {
+        ContractionHierarchyBuilder builder = new ContractionHierarchyBuilder();
+        builder.addNode(28.60, 77.20);
+        builder.addNode(28.61, 77.21);
+        builder.addNode(28.70, 77.30);
+        builder.addEdge(0, 1, 60, 1000);
+        Path file = dir.resolve("tiny.ch");
+        builder.write(file);
+
+        ContractionHierarchy ch = ContractionHierarchy.load(file);
+        assertEquals(1, ch.nearestNode(28.612, 77.209));
+        assertEquals(2, ch.nearestNode(28.9, 77.5));
+    }
+
+    // Mostly two-way streets with slightly different speeds per direction, a few one-ways
+    private static void connect(ContractionHierarchyBuilder builder, List<List<double[]>> edges, Random random,
+            int a, int b) {
+        double distance = 500 + random.nextInt(1000);
+        double forward = distance / (5 + random.nextInt(10));
+        double backward = distance / (5 + random.nextInt(10));
+        builder.addEdge(a, b, forward, distance);
+        edges.get(a).add(new double[] { b, forward, distance });
+        if (random.nextInt(10) > 0) {
+            builder.addEdge(b, a, backward, distance);
+            edges.get(b).add(new double[] { a, backward, distance });
+        }
+    }
+
+    private static double[][] dijkstra(List<List<double[]>> edges, int source) {
+        int n = edges.size();
+        double[][] best = new double[n][];
+        for (int i = 0; i < n; i++)
+            best[i] = new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+        best[source] = new double[] { 0, 0 };
+        PriorityQueue<double[]> queue = new PriorityQueue<>(Comparator.comparingDouble(e -> e[0]));
+        queue.add(new double[] { 0, 0, source });
+        while (!queue.isEmpty()) {
+            double[] top = queue.poll();
+            int v = (int) top[2];
+            if (top[0] > best[v][0])
+                continue;
+            for (double[] e : edges.get(v)) {
+                int w = (int) e[0];
+                double d = top[0] + e[1];
+                if (d < best[w][0]) {
+                    best[w] = new double[] { d, top[1] + e[2] };
+                    queue.add(new double[] { d, best[w][1], w });
+                }
+            }
+        }
+        return best;
+    }
+}
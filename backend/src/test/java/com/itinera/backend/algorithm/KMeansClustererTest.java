@@ -0,0 +1,83 @@
+package com.itinera.backend.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KMeansClustererTest {
+
+    @Test
+    void sameSeedGivesSameClusters() {
+        double[][] points = randomCity(new Random(5), 40);
+        KMeansClusterer clusterer = new KMeansClusterer(100);
+
+        int[] first = clusterer.cluster(points[0], points[1], 5, 99).assignment;
+        int[] second = clusterer.cluster(points[0], points[1], 5, 99).assignment;
+
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void separatesObviousGroupsWithoutEmptyClusters() {
+        // Three tight neighbourhoods ~10 km apart, plus duplicates that must not be duplicated
+        double[] lat = { 28.60, 28.601, 28.602, 28.70, 28.701, 28.70, 28.60, 28.65, 28.651 };
+        double[] lon = { 77.20, 77.201, 77.202, 77.20, 77.201, 77.20, 77.30, 77.25, 77.251 };
+
+        KMeansClusterer.Clustering result = new KMeansClusterer(100).cluster(lat, lon, 4, 1);
+
+        int[] sizes = new int[4];
+        for (int c : result.assignment)
+            sizes[c]++;
+        for (int size : sizes)
+            assertTrue(size > 0);
+        assertEquals(lat.length, sizes[0] + sizes[1] + sizes[2] + sizes[3]);
+        assertEquals(result.assignment[0], result.assignment[1]);
+        assertEquals(result.assignment[3], result.assignment[5]);
+        assertEquals(result.assignment[7], result.assignment[8]);
+    }
+
+    @Test
+    void unitWeightsMatchUnweightedAndHeavyPointsPullCentroids() {
+        double[][] points = randomCity(new Random(8), 30);
+        KMeansClusterer clusterer = new KMeansClusterer(100);
+        double[] ones = new double[30];
+        Arrays.fill(ones, 1);
+
+        assertArrayEquals(clusterer.cluster(points[0], points[1], 4, 3).assignment,
+                clusterer.cluster(points[0], points[1], ones, 4, 3).assignment);
+
+        // Two clusters, one of which is a single very heavy point: its neighbour joins it
+        double[] lat = { 28.60, 28.62, 28.70, 28.70 };
+        double[] lon = { 77.20, 77.20, 77.20, 77.20 };
+        double[] weight = { 100, 1, 1, 1 };
+        int[] assignment = clusterer.cluster(lat, lon, weight, 2, 1).assignment;
+        assertEquals(assignment[0], assignment[1]);
+        assertNotEquals(assignment[0], assignment[2]);
+    }
+
+    @Test
+    void moreClustersThanDistinctLocations() {
+        double[] lat = { 28.6, 28.6, 28.6 };
+        double[] lon = { 77.2, 77.2, 77.2 };
+
+        int[] assignment = new KMeansClusterer(100).cluster(lat, lon, 3, 7).assignment;
+
+        boolean[] used = new boolean[3];
+        for (int c : assignment)
+            used[c] = true;
+        assertTrue(used[0] && used[1] && used[2]);
+    }
+
+    private static double[][] randomCity(Random random, int n) {
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 28.5 + random.nextDouble() * 0.3;
+            lon[i] = 77.0 + random.nextDouble() * 0.3;
+        }
+        return new double[][] { lat, lon };
+    }
+}
@@ -0,0 +1,146 @@
+package com.itinera.backend.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteSolverTest {
+
+    @Test
+    void exactSolversMatchBruteForce() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            int size = 2 + random.nextInt(7);
+            double[] cost = randomMatrix(random, size);
+            double optimum = bruteForce(cost, size);
+
+            Route heldKarp = new HeldKarpSolver().solve(cost, size);
+            Route branchAndBound = new BranchAndBoundSolver(new LocalSearchSolver(), Long.MAX_VALUE).solve(cost, size);
+
+            assertEquals(optimum, heldKarp.cost, 1e-9);
+            assertEquals(optimum, branchAndBound.cost, 1e-9);
+            assertEquals(heldKarp.cost, Route.tourCost(cost, size, heldKarp.order), 1e-9);
+            assertPermutation(heldKarp.order, size);
+            assertPermutation(branchAndBound.order, size);
+        }
+    }
+
+    @Test
+    void localSearchReturnsValidTourCloseToOptimum() {
+        Random random = new Random(7);
+        int size = 12;
+        double[] cost = randomMatrix(random, size);
+
+        Route route = new LocalSearchSolver().solve(cost, size);
+        double optimum = new HeldKarpSolver().solve(cost, size).cost;
+
+        assertPermutation(route.order, size);
+        assertEquals(Route.tourCost(cost, size, route.order), route.cost, 1e-9);
+        assertTrue(route.cost >= optimum - 1e-9);
+        assertTrue(route.cost <= optimum * 1.25);
+    }
+
+    @Test
+    void warmStartInsertsMissingPlacesAndNeverWorsensTheSeed() {
+        int size = 20;
+        double[] cost = randomMatrix(new Random(5), size);
+        LocalSearchSolver solver = new LocalSearchSolver();
+        int[] previous = IntStream.range(1, size - 1).toArray(); // the day before place 19 was added
+
+        Route edited = solver.improve(cost, size, previous);
+
+        assertPermutation(edited.order, size);
+        assertEquals(Route.tourCost(cost, size, edited.order), edited.cost, 1e-9);
+        int[] appended = Arrays.copyOf(previous, size - 1);
+        appended[size - 2] = size - 1;
+        assertTrue(edited.cost <= Route.tourCost(cost, size, appended) + 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> solver.improve(cost, size, new int[] { 1, 1 }));
+    }
+
+    @Test
+    void largeDaysStayValid() {
+        int size = 51;
+        double[] cost = randomMatrix(new Random(11), size);
+
+        assertPermutation(new LocalSearchSolver().solve(cost, size).order, size);
+        assertPermutation(new BranchAndBoundSolver(new LocalSearchSolver(), 10_000).solve(cost, size).order, size);
+    }
+
+    @Test
+    void timeWindowSolverRespectsOpeningHours() {
+        // Hotel and three places on a line, 10 minutes apart; cheapest order is 1, 2, 3
+        int size = 4;
+        double[] travel = new double[size * size];
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                travel[i * size + j] = Math.abs(i - j) * 10;
+
+        // Place 1 only opens late in the afternoon, place 3 closes before noon
+        int[] open = { 0, 900, 540, 540 };
+        int[] close = { 0, 1080, 1080, 700 };
+        int[] explore = { 0, 60, 60, 60 };
+        TimeWindows windows = new TimeWindows(travel, size, open, close, explore, 540);
+
+        assertFalse(windows.simulate(new int[] { 1, 2, 3 }).feasible);
+
+        Route route = new TimeWindowSolver(windows, new HeldKarpSolver(), Long.MAX_VALUE).solve(travel.clone(), size);
+        Schedule schedule = windows.simulate(route.order);
+
+        assertTrue(schedule.feasible);
+        assertEquals(1, route.order[2]);
+        assertEquals(960, schedule.departure[2]); // waited for the 15:00 opening, then explored an hour
+    }
+
+    private static double[] randomMatrix(Random random, int size) {
+        double[][] points = new double[size][2];
+        for (double[] p : points) {
+            p[0] = random.nextDouble() * 10;
+            p[1] = random.nextDouble() * 10;
+        }
+        double[] cost = new double[size * size];
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                cost[i * size + j] = i == j ? Double.POSITIVE_INFINITY
+                        : Math.hypot(points[i][0] - points[j][0], points[i][1] - points[j][1]) + random.nextDouble();
+        return cost;
+    }
+
+    private static double bruteForce(double[] cost, int size) {
+        int[] order = new int[size - 1];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i + 1;
+        return permute(cost, size, order, 0);
+    }
+
+    private static double permute(double[] cost, int size, int[] order, int k) {
+        if (k == order.length)
+            return Route.tourCost(cost, size, order);
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = k; i < order.length; i++) {
+            swap(order, k, i);
+            best = Math.min(best, permute(cost, size, order, k + 1));
+            swap(order, k, i);
+        }
+        return best;
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    private static void assertPermutation(int[] order, int size) {
+        assertEquals(size - 1, order.length);
+        boolean[] seen = new boolean[size];
+        for (int node : order) {
+            assertTrue(node >= 1 && node < size);
+            assertFalse(seen[node]);
+            seen[node] = true;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.itinera.backend.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialIndexTest {
+
+    @Test
+    void radiusQueryMatchesLinearScan() {
+        Random random = new Random(3);
+        int n = 3000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 28.4 + random.nextDouble() * 0.4;
+            lon[i] = 77.0 + random.nextDouble() * 0.4;
+        }
+        SpatialIndex index = new SpatialIndex(lat, lon);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        KMeansClusterer.project(lat, lon, x, y);
+
+        for (double radius : new double[] { 0.5, 3, 12 }) {
+            int centre = random.nextInt(n);
+            int[] expected = IntStream.range(0, n)
+                    .filter(i -> Math.hypot(x[i] - x[centre], y[i] - y[centre]) <= radius)
+                    .toArray();
+
+            assertArrayEquals(expected, index.within(lat[centre], lon[centre], radius));
+        }
+    }
+
+    @Test
+    void cellsCoverEveryPointOnce() {
+        double[] lat = { 28.6000, 28.6001, 28.6500, 28.6501, 28.7000 };
+        double[] lon = { 77.2000, 77.2001, 77.2500, 77.2501, 77.3000 };
+
+        SpatialIndex.Cells cells = new SpatialIndex(lat, lon).cells(0.25);
+
+        assertEquals(3, cells.weight.length);
+        assertEquals(lat.length, Arrays.stream(cells.weight).sum(), 1e-9);
+        assertEquals(cells.cellOf[0], cells.cellOf[1]);
+        assertEquals(cells.cellOf[2], cells.cellOf[3]);
+        assertEquals(28.60005, cells.lat[cells.cellOf[0]], 1e-9);
+    }
+}
@@ -0,0 +1,22 @@
+package com.itinera.backend.api;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlacesControllerTest {
+
+    @Test
+    void readsQValuesInAcceptEncoding() {
+        assertTrue(PlacesController.acceptsDeflate("gzip, deflate, br"));
+        assertTrue(PlacesController.acceptsDeflate("DEFLATE;q=0.5"));
+        assertTrue(PlacesController.acceptsDeflate("gzip, *;q=0.1"));
+
+        assertFalse(PlacesController.acceptsDeflate(null));
+        assertFalse(PlacesController.acceptsDeflate("gzip, br"));
+        assertFalse(PlacesController.acceptsDeflate("gzip, deflate;q=0"));
+        assertFalse(PlacesController.acceptsDeflate("deflate; q=0.0, *"));
+        assertFalse(PlacesController.acceptsDeflate("*;q=0"));
+        assertFalse(PlacesController.acceptsDeflate("x-deflate"));
+    }
+}
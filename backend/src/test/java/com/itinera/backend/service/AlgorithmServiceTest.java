@@ -0,0 +1,250 @@
+package com.itinera.backend.service;
+
+import com.itinera.backend.model.DayPlan;
+import com.itinera.backend.model.GenerateOrderRequest;
+import com.itinera.backend.model.Hotel;
+import com.itinera.backend.model.Place;
+import com.itinera.backend.model.PlanEdit;
+import com.itinera.backend.model.TripPlan;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class AlgorithmServiceTest {
+
+    private static final Hotel HOTEL = new Hotel("Imperial", 28.6253, 77.2183);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private AlgorithmService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // OSRM is down: every trip is planned over straight-line estimates
+        OsrmMatrixService osrm = mock(OsrmMatrixService.class);
+        when(osrm.getMatrix(any())).thenThrow(new IllegalStateException("OSRM unavailable"));
+
+        RouteSolverEngine engine = new RouteSolverEngine();
+        setField(engine, "exactMaxPlaces", 13);
+        setField(engine, "branchAndBoundMaxPlaces", 16);
+        setField(engine, "branchAndBoundNodeBudget", 2_000_000L);
+        setField(engine, "timeWindowNodeBudget", 500_000L);
+
+        service = new AlgorithmService(1.3, 25);
+        setField(service, "osrmMatrixService", osrm);
+        setField(service, "routeSolverEngine", engine);
+        setField(service, "planStore", new PlanStore(64 << 20, 60));
+        setField(service, "meterRegistry", registry);
+        setField(service, "observationRegistry", ObservationRegistry.NOOP);
+        setField(service, "timeWindowsEnabled", true);
+        setField(service, "dayStartMinute", 540);
+        setField(service, "planDeadlineMs", 15_000L);
+        setField(service, "clusterSeed", 42L);
+        setField(service, "clusterMode", "balanced");
+        setField(service, "maxStopsPerDay", 10);
+        setField(service, "balanceSlack", 0.15);
+        setField(service, "gridMinPlaces", 500);
+        setField(service, "gridCellKm", 0.25);
+    }
+
+    @Test
+    void plansEveryPlaceUnlessAskedToPrune() {
+        GenerateOrderRequest request = request(places(25, 1), 2);
+
+        TripPlan plan = service.planTrip(request, service.planKey(request));
+
+        assertEquals(25, plan.getSchedules().stream().mapToInt(day -> day.getPlaces().size()).sum());
+        assertTrue(plan.getDropped().isEmpty());
+    }
+
+    @Test
+    void planKeyDependsOnTheTravelTimeSource() throws Exception {
+        OsrmMatrixService osrm = mock(OsrmMatrixService.class);
+        setField(service, "osrmMatrixService", osrm);
+        GenerateOrderRequest request = request(places(5, 1), 1);
+
+        when(osrm.source()).thenReturn("osrm:driving@http://router.project-osrm.org");
+        String publicServer = service.planKey(request);
+        when(osrm.source()).thenReturn("osrm:foot@http://router.project-osrm.org");
+        String walking = service.planKey(request);
+        when(osrm.source()).thenReturn("local:/data/delhi.ch/120000");
+
+        assertNotEquals(publicServer, walking);
+        assertNotEquals(publicServer, service.planKey(request));
+    }
+
+    @Test
+    void largeTripsClusterOverGridCellsBeforePruning() {
+        GenerateOrderRequest request = request(places(600, 2), 3);
+        request.setPrune(true);
+
+        TripPlan plan = service.planTrip(request, service.planKey(request));
+
+        DistributionSummary grid = registry.find("itinera.cluster.iterations").tag("algorithm", "grid").summary();
+        assertNotNull(grid);
+        assertEquals(1, grid.count());
+
+        int planned = 0;
+        for (var day : plan.getSchedules()) {
+            assertTrue(day.getPlaces().size() <= 10);
+            planned += day.getPlaces().size();
+        }
+        assertEquals(30, planned);
+        assertEquals(600 - planned, plan.getDropped().size());
+    }
+
+    @Test
+    void pinMovesAPlaceAndNeedsANewDay() {
+        GenerateOrderRequest request = request(places(12, 3), 2);
+        TripPlan plan = service.planTrip(request, service.planKey(request));
+        Place place = plan.getSchedules().get(0).getPlaces().get(0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.editPlan(plan.getPlanId(), new PlanEdit("pin", place, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.editPlan(plan.getPlanId(), new PlanEdit("pin", place, 0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.editPlan(plan.getPlanId(), new PlanEdit("unpin", place, null)));
+
+        TripPlan moved = service.editPlan(plan.getPlanId(), new PlanEdit("pin", place, 1));
+        assertNotEquals(plan.getPlanId(), moved.getPlanId());
+        assertFalse(moved.getSchedules().get(0).getPlaces().contains(place));
+        assertTrue(moved.getSchedules().get(1).getPlaces().contains(place));
+    }
+
+    @Test
+    void editsRememberThatTheyAddedEstimatedRows() throws Exception {
+        // Exact matrix for the trip, then one failed extension for the first added place
+        HaversineMatrixProvider roads = new HaversineMatrixProvider(1.3, 25);
+        OsrmMatrixService osrm = mock(OsrmMatrixService.class);
+        when(osrm.getMatrix(any())).thenAnswer(invocation -> roads.matrix(invocation.getArgument(0)));
+        when(osrm.extend(any(), any())).thenThrow(new IllegalStateException("OSRM unavailable"))
+                .thenAnswer(invocation -> roads.matrix(invocation.getArgument(1)));
+        setField(service, "osrmMatrixService", osrm);
+
+        GenerateOrderRequest request = request(places(8, 4), 2);
+        TripPlan plan = service.planTrip(request, service.planKey(request));
+        assertFalse(plan.getSchedules().get(0).isEstimated());
+
+        List<Place> extra = places(10, 5).subList(8, 10);
+        TripPlan first = service.editPlan(plan.getPlanId(), new PlanEdit("add", extra.get(0), 1));
+        assertTrue(first.getSchedules().get(1).isEstimated());
+
+        // The stored matrix now holds estimates, so later edits must not pass it off as OSRM data
+        TripPlan second = service.editPlan(first.getPlanId(), new PlanEdit("add", extra.get(1), 0));
+        assertTrue(second.getSchedules().get(0).isEstimated());
+        verify(osrm, times(1)).extend(any(), any());
+    }
+
+    @Test
+    void batchSharesMatricesOnlyBetweenOverlappingTripsAndTimesOutSlowOnes() throws Exception {
+        Hotel far = new Hotel("Taj Mumbai", 18.9217, 72.8332);
+        List<Integer> fetched = Collections.synchronizedList(new ArrayList<>());
+        HaversineMatrixProvider roads = new HaversineMatrixProvider(1.3, 25);
+        OsrmMatrixService osrm = mock(OsrmMatrixService.class);
+        when(osrm.getMatrix(any())).thenAnswer(invocation -> {
+            List<Place> stops = invocation.getArgument(0);
+            fetched.add(stops.size());
+            if (stops.get(0).getLatitude() == far.getLatitude())
+                Thread.sleep(2_000); // this trip's OSRM is slow
+            return roads.matrix(stops);
+        });
+        setField(service, "osrmMatrixService", osrm);
+        setField(service, "batchMaxMatrixStops", 300);
+        setField(service, "batchTripTimeoutMs", 500L);
+
+        List<Place> popular = places(8, 6);
+        GenerateOrderRequest slow = request(places(4, 8), 1);
+        slow.setHotel(far);
+        List<CompletableFuture<TripPlan>> results = service.planBatch(List.of(
+                request(popular, 2), request(popular, 3), request(places(5, 7), 1), slow));
+
+        assertEquals(8, planned(results.get(0).get(5, TimeUnit.SECONDS)));
+        assertEquals(8, planned(results.get(1).get(5, TimeUnit.SECONDS)));
+        assertEquals(5, planned(results.get(2).get(5, TimeUnit.SECONDS)));
+        ExecutionException timedOut = assertThrows(ExecutionException.class,
+                () -> results.get(3).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, timedOut.getCause());
+
+        // The two identical trips share one fetch; the one sharing only the hotel gets its own
+        List<Integer> sizes = new ArrayList<>(fetched);
+        Collections.sort(sizes);
+        assertEquals(List.of(5, 6, 9), sizes);
+    }
+
+    @Test
+    void slowOsrmIsCancelledAtTheDeadlineAndDaysFallBackToNearestFirst() throws Exception {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        OsrmMatrixService osrm = mock(OsrmMatrixService.class);
+        when(osrm.getMatrix(any())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                cancelled.countDown();
+                throw e;
+            }
+            return null;
+        });
+        setField(service, "osrmMatrixService", osrm);
+        setField(service, "planDeadlineMs", 200L);
+
+        // One big day: its route search cannot finish in the time OSRM left over
+        GenerateOrderRequest request = request(places(40, 9), 1);
+        long start = System.nanoTime();
+        TripPlan plan = service.planTrip(request, service.planKey(request));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000);
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        DayPlan day = plan.getSchedules().get(0);
+        assertTrue(day.isEstimated());
+        assertTrue(day.getSchedule().isEmpty());
+
+        List<Place> nearestFirst = new ArrayList<>(request.getPlaces());
+        nearestFirst.sort(Comparator.comparingDouble(p -> AlgorithmService.haversine(HOTEL.getLatitude(),
+                HOTEL.getLongitude(), p.getLatitude(), p.getLongitude())));
+        assertEquals(nearestFirst, day.getPlaces());
+        assertEquals(1, registry.counter("itinera.plan.fallback", "reason", "osrm").count());
+        assertEquals(1, registry.counter("itinera.plan.fallback", "reason", "deadline").count());
+    }
+
+    private static int planned(TripPlan plan) {
+        return plan.getSchedules().stream().mapToInt(day -> day.getPlaces().size()).sum();
+    }
+
+    private static GenerateOrderRequest request(List<Place> places, int days) {
+        GenerateOrderRequest request = new GenerateOrderRequest();
+        request.setPlaces(places);
+        request.setDays(days);
+        request.setHotel(HOTEL);
+        return request;
+    }
+
+    private static List<Place> places(int n, long seed) {
+        Random random = new Random(seed);
+        List<Place> places = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            places.add(new Place("Place " + i, "", 28.55 + random.nextDouble() * 0.15,
+                    77.15 + random.nextDouble() * 0.15, 540, 1080, 600, 960, 45, 1 + random.nextInt(5)));
+        return places;
+    }
+}
@@ -0,0 +1,35 @@
+package com.itinera.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheMetricsTest {
+
+    @Test
+    void familyDropsTheIdAndKeepsTheFirstTwoSegments() {
+        assertEquals("places:city", CacheMetrics.family("places:city:New Delhi"));
+        assertEquals("places:city", CacheMetrics.family("places:city:Paris:stale"));
+        assertEquals("itinerary:session", CacheMetrics.family("itinerary:session:0b9f"));
+        assertEquals("payload", CacheMetrics.family("payload"));
+    }
+
+    @Test
+    void countsLookupsPerFamilyAndResult() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheMetrics metrics = new CacheMetrics(registry);
+
+        metrics.hit("itinerary:doc");
+        metrics.record("itinerary:day", 3, 2);
+        metrics.record("itinerary:day", 0, 1);
+
+        assertEquals(1, count(registry, "itinerary:doc", "hit"));
+        assertEquals(3, count(registry, "itinerary:day", "hit"));
+        assertEquals(3, count(registry, "itinerary:day", "miss"));
+    }
+
+    private static double count(SimpleMeterRegistry registry, String family, String result) {
+        return registry.get("itinera.cache.lookups").tag("family", family).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,84 @@
+package com.itinera.backend.service;
+
+import com.itinera.backend.model.Place;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OsrmMatrixServiceTest {
+
+    // Records every table request and fills its cells with 1s
+    private static final class RecordingProvider implements RoutingMatrixProvider {
+        final List<int[][]> requests = new ArrayList<>();
+
+        @Override
+        public String source() {
+            return "recording";
+        }
+
+        @Override
+        public void table(List<Place> places, int[] rows, int[] cols, MatrixResult target) {
+            requests.add(new int[][] { rows.clone(), cols.clone() });
+            for (int i : rows)
+                for (int j : cols)
+                    target.set(i, j, 1, 1);
+        }
+    }
+
+    @Test
+    void fetchesOnlyTheRowAndColumnOfANewPlace() throws Exception {
+        int n = 6, fresh = 3;
+        TravelTimeStore store = mock(TravelTimeStore.class);
+        when(store.load(any(), any())).thenAnswer(invocation -> {
+            boolean[][] known = new boolean[n][n];
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    known[i][j] = i != fresh && j != fresh || i == j;
+            return known;
+        });
+        RecordingProvider provider = new RecordingProvider();
+        OsrmMatrixService service = new OsrmMatrixService(provider, store, new SimpleMeterRegistry(), 1 << 20, 60);
+
+        service.getMatrix(places(n));
+
+        assertEquals(2, provider.requests.size());
+        assertArrayEquals(new int[] { fresh }, provider.requests.get(0)[0]);
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5 }, provider.requests.get(0)[1]);
+        assertArrayEquals(new int[] { 0, 1, 2, 4, 5 }, provider.requests.get(1)[0]);
+        assertArrayEquals(new int[] { fresh }, provider.requests.get(1)[1]);
+    }
+
+    @Test
+    void coversEveryUnknownCellWithFewStops() {
+        boolean[][] known = new boolean[5][5];
+        for (boolean[] row : known)
+            Arrays.fill(row, true);
+        known[0][4] = false;
+        known[2][4] = false;
+        known[4][1] = false;
+        known[1][3] = false;
+
+        int[] missing = OsrmMatrixService.missingStops(known);
+
+        // Stop 4 covers three cells, then one of 1 and 3 covers the last
+        assertEquals(2, missing.length);
+        assertEquals(4, missing[1]);
+        assertTrue(missing[0] == 1 || missing[0] == 3);
+        assertEquals(0, OsrmMatrixService.missingStops(new boolean[][] { { true } }).length);
+    }
+
+    private static List<Place> places(int n) {
+        List<Place> places = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            places.add(new Place("Place " + i, "", 28.6 + i * 0.01, 77.2, 540, 1080, 600, 960, 45, 1));
+        return places;
+    }
+}
@@ -0,0 +1,62 @@
+package com.itinera.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PayloadStoreTest {
+
+    @Test
+    void compressesLargePayloadsAndRoundTrips() {
+        StringBuilder json = new StringBuilder("{\"places\":[");
+        for (int i = 0; i < 20; i++)
+            json.append("{\"name\":\"Place ").append(i).append("\",\"open_time\":\"9:00 AM\",\"close_time\":\"6:00 PM\"},");
+        json.append("{}]}");
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+
+        byte[] encoded = PayloadStore.encode(bytes, 1024);
+
+        assertEquals('D', encoded[0]);
+        assertTrue(encoded.length < bytes.length / 2);
+        assertArrayEquals(bytes, PayloadStore.decode(encoded));
+    }
+
+    @Test
+    void storesSmallPayloadsRaw() {
+        byte[] bytes = "{\"itinerary\":[]}".getBytes(StandardCharsets.UTF_8);
+
+        byte[] encoded = PayloadStore.encode(bytes, 1024);
+
+        assertEquals('R', encoded[0]);
+        assertArrayEquals(bytes, PayloadStore.decode(encoded));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void resolvesPointersInBulk() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        List<String> keys = List.of("itinerary:day:a", "itinerary:day:b", "itinerary:day:c", "itinerary:day:d");
+        // A shared payload, a value from before payloads, a missing key and an expired payload
+        when(values.multiGet(keys)).thenReturn(Arrays.asList("payload:1", "{\"day\":2}", null, "payload:4"));
+        byte[] day = PayloadStore.encode("{\"day\":1}".getBytes(StandardCharsets.UTF_8), 1024);
+        when(redis.execute(any(RedisCallback.class))).thenReturn(Arrays.asList(day, null));
+
+        List<String> resolved = new PayloadStore(redis, new CacheMetrics(new SimpleMeterRegistry()), 1024)
+                .resolveAll(keys);
+
+        assertEquals(Arrays.asList("{\"day\":1}", "{\"day\":2}", null, null), resolved);
+    }
+}
@@ -0,0 +1,37 @@
+package com.itinera.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlacesServiceTest {
+
+    @Test
+    void normalizesFencedOutputAndDropsInvalidPlaces() throws Exception {
+        String content = "```json\n{\"places\": ["
+                + "{\"name\": \"Red Fort\", \"latitude\": 28.6562, \"longitude\": 77.2410, \"priority\": \"1\","
+                + " \"open_time\": 930, \"read_more_link\": \"https://example.org\", \"rating\": 4.5},"
+                + "{\"name\": \"\", \"latitude\": 28.6, \"longitude\": 77.2},"
+                + "{\"name\": \"Nowhere\", \"latitude\": 0, \"longitude\": 0},"
+                + "{\"name\": \"Off the map\", \"latitude\": 128.6, \"longitude\": 77.2}"
+                + "]}\n```";
+
+        JsonNode json = new ObjectMapper().readTree(PlacesService.normalize(content));
+
+        assertEquals(1, json.get("places").size());
+        JsonNode fort = json.get("places").get(0);
+        assertEquals("Red Fort", fort.get("name").asText());
+        assertEquals(1, fort.get("priority").asInt());
+        assertEquals("930", fort.get("open_time").asText());
+        assertEquals("https://example.org", fort.get("read_more_link").asText());
+        assertFalse(fort.has("rating"));
+    }
+
+    @Test
+    void rejectsOutputWithoutUsablePlaces() {
+        assertThrows(IllegalStateException.class, () -> PlacesService.normalize("Sorry, I can't help with that."));
+        assertThrows(IllegalStateException.class, () -> PlacesService.normalize("{\"places\": []}"));
+    }
+}
@@ -0,0 +1,35 @@
+package com.itinera.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PlanCacheTest {
+
+    private final PayloadStore payloads = mock(PayloadStore.class);
+
+    private PlanCache cache() {
+        return new PlanCache(payloads, new CacheMetrics(new SimpleMeterRegistry()), 100, 60, 24, 5);
+    }
+
+    @Test
+    void keepsEstimatedPlansOnlyBriefly() {
+        cache().put("exact", "{\"a\":1}", false);
+        cache().put("rough", "{\"b\":2}", true);
+
+        verify(payloads).writeSession("plan:doc:", "exact", "{\"a\":1}", Duration.ofHours(24));
+        verify(payloads).writeSession("plan:est:", "rough", "{\"b\":2}", Duration.ofMinutes(5));
+    }
+
+    @Test
+    void servesAnEstimatedPlanItHandedOutOnAnotherInstance() {
+        when(payloads.resolveSession("plan:est:", "rough")).thenReturn("{\"b\":2}");
+
+        assertEquals("{\"b\":2}", cache().get("rough"));
+        assertNull(cache().get("unknown"));
+    }
+}
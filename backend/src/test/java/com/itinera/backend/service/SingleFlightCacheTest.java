@@ -0,0 +1,75 @@
+package com.itinera.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SingleFlightCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private StringRedisTemplate redis;
+    private ValueOperations<String, String> values;
+    private PayloadStore payloads;
+    private SingleFlightCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redis = mock(StringRedisTemplate.class);
+        values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        payloads = mock(PayloadStore.class);
+        cache = new SingleFlightCache(redis, mock(RedisMessageListenerContainer.class), payloads,
+                new CacheMetrics(new SimpleMeterRegistry()), 50, 24);
+    }
+
+    @Test
+    void takesOverTheLeaseWhenTheHolderDies() throws Exception {
+        // Held by a dead instance at first, free once it lapses
+        when(values.setIfAbsent(eq("places:city:Paris:lock"), anyString(), any(Duration.class)))
+                .thenReturn(false, true);
+        AtomicInteger loads = new AtomicInteger();
+
+        String value = cache.get("places:city:Paris", TTL, () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("fresh");
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals("fresh", value);
+        assertEquals(1, loads.get());
+        verify(payloads).writePointer("places:city:Paris", "fresh", TTL);
+        verify(payloads).writePointer("places:city:Paris:stale", "fresh", Duration.ofHours(24));
+    }
+
+    @Test
+    void keepsWaitingWhileAnotherInstanceTookOver() throws Exception {
+        // The lease lapses, but another waiter wins it and its value lands before the next timeout
+        when(values.setIfAbsent(eq("places:city:Paris:lock"), anyString(), any(Duration.class)))
+                .thenReturn(false, false);
+        when(payloads.resolve("places:city:Paris")).thenReturn(null, null, "theirs");
+        AtomicInteger loads = new AtomicInteger();
+
+        String value = cache.get("places:city:Paris", TTL, () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("mine");
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals("theirs", value);
+        assertEquals(0, loads.get());
+    }
+}
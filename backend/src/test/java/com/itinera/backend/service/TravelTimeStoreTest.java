@@ -0,0 +1,21 @@
+package com.itinera.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TravelTimeStoreTest {
+
+    private static final String PUBLIC = "http://router.project-osrm.org";
+
+    @Test
+    void keysAreScopedToTheServerProfileAndDataset() {
+        String prefix = TravelTimeStore.keyPrefix(PUBLIC, "driving", "");
+        assertTrue(prefix.startsWith("osrm:pair:driving:"));
+        assertEquals(prefix, TravelTimeStore.keyPrefix(PUBLIC, "driving", ""));
+
+        assertNotEquals(prefix, TravelTimeStore.keyPrefix(PUBLIC, "foot", ""));
+        assertNotEquals(prefix, TravelTimeStore.keyPrefix("http://osrm.internal:5000", "driving", ""));
+        assertNotEquals(prefix, TravelTimeStore.keyPrefix(PUBLIC, "driving", "2026-10"));
+    }
+}
@@ -0,0 +1,36 @@
+package com.itinera.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItineraryDayParserTest {
+
+    @Test
+    void emitsEachDayAsSoonAsItCloses() {
+        String document = "{\n  \"itinerary\": [\n"
+                + "    {\"clusterName\": \"Old {Delhi}\", \"schedule\": [{\"time\": \"9:30 AM\", \"activity\": \"Red \\\"Fort\\\"\"}]},\n"
+                + "    {\"clusterName\": \"South Delhi\", \"schedule\": []}\n"
+                + "  ]\n}";
+
+        ItineraryDayParser parser = new ItineraryDayParser();
+        List<String> days = new ArrayList<>();
+        int firstDayChunk = -1;
+        for (int i = 0; i < document.length(); i += 7) {
+            List<String> found = parser.feed(document.substring(i, Math.min(document.length(), i + 7)));
+            if (!found.isEmpty() && firstDayChunk < 0)
+                firstDayChunk = i;
+            days.addAll(found);
+        }
+
+        assertEquals(2, days.size());
+        assertTrue(days.get(0).startsWith("{\"clusterName\": \"Old {Delhi}\""));
+        assertTrue(days.get(0).endsWith("}]}"));
+        assertEquals("{\"clusterName\": \"South Delhi\", \"schedule\": []}", days.get(1));
+        assertTrue(firstDayChunk < document.indexOf("South Delhi"));
+        assertEquals(document, parser.text());
+    }
+}
@@ -0,0 +1,46 @@
+package com.itinera.backend.util;
+
+import com.itinera.backend.model.ItineraryRequest;
+import com.itinera.backend.model.Place;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItineraryKeysTest {
+
+    private static Place place(String name, double lat, double lon) {
+        return new Place(name, "desc", lat, lon, 540, 1080, 600, 720, 90, 1);
+    }
+
+    private static ItineraryRequest request(List<List<Place>> days) {
+        ItineraryRequest request = new ItineraryRequest();
+        request.setOptimizedItineraries(days);
+        return request;
+    }
+
+    @Test
+    void normalizesNamesAndCoordinateNoise() {
+        Place fort = place("Red Fort", 28.656159, 77.241020);
+        Place fortAgain = place("  Red   Fort ", 28.6561590001, 77.2410200004);
+        fortAgain.setDescription("a different blurb");
+
+        assertEquals(ItineraryKeys.itinerary(request(List.of(List.of(fort)))),
+                ItineraryKeys.itinerary(request(List.of(List.of(fortAgain)))));
+        assertEquals(ItineraryKeys.day(List.of(fort)), ItineraryKeys.day(List.of(fortAgain)));
+    }
+
+    @Test
+    void isSensitiveToOrderAndTimes() {
+        Place a = place("Red Fort", 28.6562, 77.2410);
+        Place b = place("India Gate", 28.6129, 77.2295);
+        Place later = place("Red Fort", 28.6562, 77.2410);
+        later.setOpenTime(600);
+
+        String key = ItineraryKeys.itinerary(request(List.of(List.of(a), List.of(b))));
+        assertNotEquals(key, ItineraryKeys.itinerary(request(List.of(List.of(b), List.of(a)))));
+        assertNotEquals(key, ItineraryKeys.itinerary(request(List.of(List.of(a, b)))));
+        assertNotEquals(ItineraryKeys.day(List.of(a)), ItineraryKeys.day(List.of(later)));
+    }
+}
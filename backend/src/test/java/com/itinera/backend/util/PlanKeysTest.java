@@ -0,0 +1,69 @@
+package com.itinera.backend.util;
+
+import com.itinera.backend.model.GenerateOrderRequest;
+import com.itinera.backend.model.Hotel;
+import com.itinera.backend.model.Place;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanKeysTest {
+
+    private static final Hotel HOTEL = new Hotel("Imperial", 28.6253, 77.2183);
+
+    private static Place place(String name, double lat, double lon) {
+        return new Place(name, "desc", lat, lon, 540, 1080, 600, 720, 90, 1);
+    }
+
+    private static GenerateOrderRequest request(List<Place> places, int days, Hotel hotel) {
+        GenerateOrderRequest request = new GenerateOrderRequest();
+        request.setPlaces(places);
+        request.setDays(days);
+        request.setHotel(hotel);
+        return request;
+    }
+
+    @Test
+    void ignoresPostedOrderButNotTheTrip() {
+        Place a = place("Red Fort", 28.6562, 77.2410);
+        Place b = place("India Gate", 28.6129, 77.2295);
+        Place c = place("Qutub Minar", 28.5245, 77.1855);
+
+        String key = PlanKeys.plan(request(List.of(a, b, c), 2, HOTEL), "cfg");
+        assertEquals(key, PlanKeys.plan(request(List.of(c, a, b), 2, HOTEL), "cfg"));
+        assertEquals(PlanKeys.sorted(List.of(a, b, c)), PlanKeys.sorted(List.of(b, c, a)));
+
+        assertNotEquals(key, PlanKeys.plan(request(List.of(a, b, c), 3, HOTEL), "cfg"));
+        assertNotEquals(key, PlanKeys.plan(request(List.of(a, b), 2, HOTEL), "cfg"));
+        assertNotEquals(key, PlanKeys.plan(request(List.of(a, b, c), 2, new Hotel("Imperial", 28.6, 77.2)), "cfg"));
+        assertNotEquals(key, PlanKeys.plan(request(List.of(a, b, c), 2, HOTEL), "cfg2"));
+    }
+
+    @Test
+    void coversEveryServedField() {
+        Place a = place("Red Fort", 28.6562, 77.2410);
+        String key = PlanKeys.plan(request(List.of(a), 1, HOTEL), "cfg");
+
+        Place described = place("Red Fort", 28.6562, 77.2410);
+        described.setDescription("other");
+        Place spaced = place("Red  Fort ", 28.6562, 77.2410);
+        Place moved = place("Red Fort", 28.656201, 77.2410);
+        assertNotEquals(key, PlanKeys.plan(request(List.of(described), 1, HOTEL), "cfg"));
+        assertNotEquals(key, PlanKeys.plan(request(List.of(spaced), 1, HOTEL), "cfg"));
+        assertNotEquals(key, PlanKeys.plan(request(List.of(moved), 1, HOTEL), "cfg"));
+        assertNotEquals(key, PlanKeys.plan(request(List.of(a), 1, new Hotel("Imperial ", 28.6253, 77.2183)), "cfg"));
+
+        // Free text can't shift into a neighbouring field
+        assertNotEquals(PlanKeys.plan(request(List.of(new Place("a|", "b", 1, 1, 0, 0, 0, 0, 0, 1)), 1, HOTEL), "cfg"),
+                PlanKeys.plan(request(List.of(new Place("a", "|b", 1, 1, 0, 0, 0, 0, 0, 1)), 1, HOTEL), "cfg"));
+    }
+
+    @Test
+    void seedComesFromTheKey() {
+        String key = PlanKeys.plan(request(List.of(place("Red Fort", 28.6562, 77.2410)), 1, HOTEL), "cfg");
+        assertEquals(PlanKeys.seed(key), PlanKeys.seed(key));
+        assertEquals(Long.parseUnsignedLong(key.substring(0, 16), 16), PlanKeys.seed(key));
+    }
+}